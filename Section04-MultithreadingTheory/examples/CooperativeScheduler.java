@@ -0,0 +1,194 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Real round-robin time slicing in user space — what ManualTimeSlicing and
+ * Practice401.hardProblems only pretend to do with sleep().
+ * <p>
+ * Jobs are step functions, not threads. A few carrier threads take jobs from one ready queue
+ * and call {@link Job#step(Context)} again and again until the quantum is used up, the job
+ * yields, or it finishes; then the job goes to the back of the queue. Long steps can check
+ * {@link Context#shouldYield()} to give the carrier back mid-step. Thousands of jobs cost a few
+ * objects each instead of a thread stack each.
+ * <p>
+ * Every job keeps its CPU time, slices and time spent waiting in the ready queue; {@link #report()}
+ * turns that into fairness numbers: Jain's index over each job's progress rate (CPU time divided
+ * by turnaround, 1.0 = every job was slowed down equally) and the worst ready-queue wait.
+ */
+public class CooperativeScheduler implements AutoCloseable {
+
+    public enum Status { CONTINUE, YIELD, DONE }
+
+    /** One slice of work; must not block, since a blocked carrier stalls every job behind it. */
+    @FunctionalInterface
+    public interface Job {
+        Status step(Context ctx);
+    }
+
+    /** Handed to a job while it runs. */
+    public static final class Context {
+        private long sliceDeadline;
+
+        public boolean shouldYield() {
+            return System.nanoTime() >= sliceDeadline;
+        }
+    }
+
+    public static final class Task {
+        final String name;
+        final Job job;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        long cpuNanos;
+        long slices;
+        long steps;
+        long waitNanos;
+        long maxWaitNanos;
+        long readySince;
+        long submittedAt;
+        long finishedAt;
+
+        Task(String name, Job job) {
+            this.name = name;
+            this.job = job;
+        }
+
+        public CompletableFuture<Void> completion() {
+            return done;
+        }
+    }
+
+    private final BlockingQueue<Task> ready = new LinkedBlockingQueue<>();
+    private final List<Task> tasks = new CopyOnWriteArrayList<>();
+    private final List<Thread> carriers = new ArrayList<>();
+    private final long quantumNanos;
+    private final AtomicLong contextSwitches = new AtomicLong();
+    private volatile boolean running = true;
+
+    public CooperativeScheduler(int carrierCount, long quantum, TimeUnit unit) {
+        this.quantumNanos = unit.toNanos(quantum);
+        for (int i = 0; i < carrierCount; i++) {
+            Thread carrier = new Thread(this::carry, "Carrier-" + i);
+            carrier.setDaemon(true);
+            carriers.add(carrier);
+            carrier.start();
+        }
+    }
+
+    public Task submit(String name, Job job) {
+        Task task = new Task(name, job);
+        tasks.add(task);
+        task.submittedAt = task.readySince = System.nanoTime();
+        ready.add(task);
+        return task;
+    }
+
+    private void carry() {
+        Context ctx = new Context();
+        while (running) {
+            Task task;
+            try {
+                task = ready.poll(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == null) continue;
+
+            long start = System.nanoTime();
+            long waited = start - task.readySince;
+            task.waitNanos += waited;
+            task.maxWaitNanos = Math.max(task.maxWaitNanos, waited);
+            ctx.sliceDeadline = start + quantumNanos;
+
+            Status status = Status.CONTINUE;
+            try {
+                while (status == Status.CONTINUE && !ctx.shouldYield()) {
+                    status = task.job.step(ctx);
+                    task.steps++;
+                }
+            } catch (Throwable e) {
+                // Errors too: a carrier that dies takes its job's completion with it and awaitAll() hangs
+                task.done.completeExceptionally(e);
+                status = Status.DONE;
+            }
+
+            long end = System.nanoTime();
+            task.cpuNanos += end - start;
+            task.slices++;
+            if (status == Status.DONE) {
+                task.finishedAt = end;
+                task.done.complete(null);
+            } else {
+                contextSwitches.incrementAndGet();
+                task.readySince = end;
+                ready.add(task);
+            }
+        }
+    }
+
+    /** Waits until every submitted job has finished. */
+    public void awaitAll() throws InterruptedException {
+        for (Task t : tasks) {
+            try {
+                t.done.join();
+            } catch (CompletionException e) {
+                // failed jobs still count as finished
+            }
+        }
+    }
+
+    public void report() {
+        double sum = 0, sumSq = 0, cpuTotal = 0, maxWaitMs = 0, slices = 0;
+        for (Task t : tasks) {
+            double rate = t.cpuNanos / (double) Math.max(1, t.finishedAt - t.submittedAt);
+            sum += rate;
+            sumSq += rate * rate;
+            cpuTotal += t.cpuNanos;
+            maxWaitMs = Math.max(maxWaitMs, t.maxWaitNanos / 1e6);
+            slices += t.slices;
+        }
+        int n = tasks.size();
+        double jain = sumSq == 0 ? 1 : (sum * sum) / (n * sumSq);
+        System.out.println("========Cooperative Scheduler==========");
+        System.out.printf("jobs=%d carriers=%d quantum=%.1f ms%n", n, carriers.size(), quantumNanos / 1e6);
+        System.out.printf("cpu total=%.0f ms, avg slices/job=%.1f, switches=%d%n",
+                cpuTotal / 1e6, slices / n, contextSwitches.get());
+        System.out.printf("fairness (Jain's index over progress rate)=%.3f, worst ready-queue wait=%.1f ms%n",
+                jain, maxWaitMs);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        carriers.forEach(Thread::interrupt);
+    }
+
+    /** A long-running job: sums 1..limit in small steps, like the loops in Practice401. */
+    static Job counting(long limit, long[] result) {
+        long[] i = {0};
+        return ctx -> {
+            // Inner loop honours the yield point so one step never overruns the slice by much
+            for (int k = 0; k < 10_000 && i[0] < limit; k++) result[0] += ++i[0];
+            if (i[0] >= limit) return Status.DONE;
+            return ctx.shouldYield() ? Status.YIELD : Status.CONTINUE;
+        };
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int jobs = 2_000;
+        long[][] results = new long[jobs][1];
+        try (CooperativeScheduler scheduler = new CooperativeScheduler(2, 1, TimeUnit.MILLISECONDS)) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < jobs; i++) {
+                scheduler.submit("Job-" + i, counting(1_000_000 + (i % 5) * 1_000_000L, results[i]));
+            }
+            scheduler.awaitAll();
+            System.out.printf("%d jobs on 2 carrier threads in %d ms (Job-0 sum=%d)%n",
+                    jobs, (System.nanoTime() - t0) / 1_000_000, results[0][0]);
+            scheduler.report();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package examples;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Watchdog for lock trouble: deadlocks and hot locks.
+ * <p>
+ * Every period it
+ * <ul>
+ *   <li>asks ThreadMXBean.findDeadlockedThreads() for threads stuck on monitors and j.u.c. locks,
+ *       splits them into independent cycles by following lock owners, and reports each cycle
+ *       once, with every member's stack,</li>
+ *   <li>reads every thread's cumulative blocked/waited count and time (thread contention
+ *       monitoring) and charges the increase since the last poll to the lock the thread is
+ *       stuck on right now.</li>
+ * </ul>
+ * The per-lock numbers are therefore sampled attributions, not exact accounting, but they
+ * reliably put the hottest lock at the top of {@link #printTopLocks(int)}.
+ */
+public class DeadlockWatchdog implements AutoCloseable {
+
+    static final class LockStats {
+        final String lock;
+        long contentions;
+        long blockedMillis;
+        long samples;
+        String lastOwner;
+        StackTraceElement[] lastOwnerStack = new StackTraceElement[0];
+
+        LockStats(String lock) {
+            this.lock = lock;
+        }
+    }
+
+    private static final class ThreadCounters {
+        long blockedCount;
+        long blockedMillis;
+        long waitedCount;
+        long waitedMillis;
+    }
+
+    private final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+    private final long periodMillis;
+    private final Consumer<String> alerts;
+    private final Map<String, LockStats> locks = new HashMap<>();
+    private final Map<Long, ThreadCounters> previous = new HashMap<>();
+    private final Set<Set<Long>> reportedCycles = new HashSet<>();
+    private final Thread worker;
+
+    public DeadlockWatchdog(long periodMillis, Consumer<String> alerts) {
+        this.periodMillis = periodMillis;
+        this.alerts = alerts;
+        if (mx.isThreadContentionMonitoringSupported()) mx.setThreadContentionMonitoringEnabled(true);
+        this.worker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                poll();
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "DeadlockWatchdog");
+        worker.setDaemon(true);
+    }
+
+    public DeadlockWatchdog start() {
+        worker.start();
+        return this;
+    }
+
+    synchronized void poll() {
+        checkDeadlocks();
+        sampleContention();
+    }
+
+    private void checkDeadlocks() {
+        long[] ids = mx.findDeadlockedThreads();
+        if (ids == null) return;
+        Map<Long, ThreadInfo> infos = new HashMap<>();
+        for (ThreadInfo info : mx.getThreadInfo(ids, true, true)) {
+            if (info != null) infos.put(info.getThreadId(), info);
+        }
+
+        // Every deadlocked thread waits for exactly one owner, so following owners from any of
+        // them ends in a loop, and that loop is its cycle
+        Map<Long, Set<Long>> cycleOf = new HashMap<>();
+        List<Set<Long>> cycles = new ArrayList<>();
+        for (long id : ids) {
+            List<Long> path = new ArrayList<>();
+            Map<Long, Integer> seen = new HashMap<>();
+            long current = id;
+            while (infos.containsKey(current) && !cycleOf.containsKey(current) && !seen.containsKey(current)) {
+                seen.put(current, path.size());
+                path.add(current);
+                current = infos.get(current).getLockOwnerId();
+            }
+            Set<Long> cycle;
+            if (seen.containsKey(current)) {
+                cycle = new LinkedHashSet<>(path.subList(seen.get(current), path.size()));
+                cycles.add(cycle);
+            } else {
+                cycle = cycleOf.get(current); // joins a cycle found earlier, or leads out of the set
+            }
+            if (cycle != null) for (long t : path) cycleOf.put(t, cycle);
+        }
+
+        for (Set<Long> cycle : cycles) {
+            if (!reportedCycles.add(Set.copyOf(cycle))) continue;
+            StringBuilder report = new StringBuilder("☠️ Deadlock between " + cycle.size() + " threads:\n");
+            for (long id : cycle) {
+                ThreadInfo info = infos.get(id);
+                report.append("  ").append(info.getThreadName())
+                        .append(" waits for ").append(info.getLockName())
+                        .append(" held by ").append(info.getLockOwnerName()).append('\n');
+                for (StackTraceElement frame : info.getStackTrace()) report.append("      at ").append(frame).append('\n');
+            }
+            alerts.accept(report.toString());
+        }
+    }
+
+    private void sampleContention() {
+        Set<Long> alive = new HashSet<>();
+        for (ThreadInfo info : mx.getThreadInfo(mx.getAllThreadIds(), 0)) {
+            if (info == null) continue;
+            alive.add(info.getThreadId());
+            ThreadCounters now = new ThreadCounters();
+            now.blockedCount = info.getBlockedCount();
+            now.blockedMillis = Math.max(0, info.getBlockedTime());
+            now.waitedCount = info.getWaitedCount();
+            now.waitedMillis = Math.max(0, info.getWaitedTime());
+            ThreadCounters before = previous.put(info.getThreadId(), now);
+
+            // Plain Object.wait()/Condition waits have no owner and are not contention
+            boolean blocked = info.getThreadState() == Thread.State.BLOCKED;
+            boolean parked = info.getLockOwnerId() != -1 && info.getThreadState() != Thread.State.RUNNABLE;
+            if (!(blocked || parked) || info.getLockName() == null) continue;
+
+            LockStats stats = locks.computeIfAbsent(info.getLockName(), LockStats::new);
+            stats.samples++;
+            if (before != null && blocked) {
+                stats.contentions += now.blockedCount - before.blockedCount;
+                stats.blockedMillis += now.blockedMillis - before.blockedMillis;
+            } else if (before != null) {
+                stats.contentions += now.waitedCount - before.waitedCount;
+                stats.blockedMillis += now.waitedMillis - before.waitedMillis;
+            }
+            if (info.getLockOwnerId() != -1) {
+                stats.lastOwner = info.getLockOwnerName();
+                ThreadInfo owner = mx.getThreadInfo(info.getLockOwnerId(), 16);
+                if (owner != null) stats.lastOwnerStack = owner.getStackTrace();
+            }
+        }
+        previous.keySet().retainAll(alive);
+    }
+
+    public synchronized List<LockStats> topLocks(int limit) {
+        List<LockStats> sorted = new ArrayList<>(locks.values());
+        sorted.sort(Comparator.comparingLong((LockStats s) -> s.blockedMillis)
+                .thenComparingLong(s -> s.samples).reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    public void printTopLocks(int limit) {
+        System.out.println("========Top Contended Locks==========");
+        for (LockStats s : topLocks(limit)) {
+            System.out.printf("%s: blocked %d ms over %d contentions (%d samples), last owner %s%n",
+                    s.lock, s.blockedMillis, s.contentions, s.samples, s.lastOwner);
+            Arrays.stream(s.lastOwnerStack).limit(5).forEach(f -> System.out.println("      at " + f));
+        }
+    }
+
+    @Override
+    public void close() {
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Thread daemon(String name, Runnable body) {
+        Thread t = new Thread(body, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<String> alerts = Collections.synchronizedList(new ArrayList<>());
+        try (DeadlockWatchdog watchdog = new DeadlockWatchdog(100, report -> {
+            alerts.add(report);
+            System.out.println(report);
+        }).start()) {
+            // 1) Hot monitor: four threads queue behind a slow critical section
+            Object hot = new Object();
+            for (int i = 0; i < 4; i++) {
+                daemon("Hot-" + i, () -> {
+                    while (true) {
+                        synchronized (hot) {
+                            sleepQuietly(20);
+                        }
+                    }
+                });
+            }
+
+            // 2) Classic lock-ordering deadlock on two ReentrantLocks
+            ReentrantLock accountA = new ReentrantLock();
+            ReentrantLock accountB = new ReentrantLock();
+            daemon("TransferAB", () -> {
+                accountA.lock();
+                sleepQuietly(100);
+                accountB.lock();
+            });
+            daemon("TransferBA", () -> {
+                accountB.lock();
+                sleepQuietly(100);
+                accountA.lock();
+            });
+
+            TimeUnit.SECONDS.sleep(1);
+
+            // 3) A second, unrelated deadlock later on: only the new cycle may be reported,
+            //    not the first one again
+            Object left = new Object(), right = new Object();
+            daemon("PhilosopherL", () -> {
+                synchronized (left) {
+                    sleepQuietly(100);
+                    synchronized (right) {
+                        sleepQuietly(1);
+                    }
+                }
+            });
+            daemon("PhilosopherR", () -> {
+                synchronized (right) {
+                    sleepQuietly(100);
+                    synchronized (left) {
+                        sleepQuietly(1);
+                    }
+                }
+            });
+
+            TimeUnit.SECONDS.sleep(1);
+            watchdog.printTopLocks(3);
+            System.out.println("Deadlock reports: " + alerts.size() + " (expected 2)");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package examples;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Background sampler that answers CustomTest501's questions continuously and cheaply.
+ * <p>
+ * Every interval it takes one ThreadMXBean snapshot (no locked monitors or synchronizers,
+ * stack depth capped) and adds it to two aggregates:
+ * <ul>
+ *   <li>folded stacks — "pool;frame;frame;STATE count", ready for flamegraph.pl,</li>
+ *   <li>per-pool time spent RUNNABLE / BLOCKED / WAITING / TIMED_WAITING.</li>
+ * </ul>
+ * The sampler times its own snapshots; if they cost more than {@code maxOverhead} of the
+ * interval it stretches the interval, up to {@code maxBackoff} times the base, and shrinks it
+ * back once sampling is cheap again.
+ */
+public class ThreadStateSampler implements AutoCloseable {
+    private final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+    private final long baseIntervalMillis;
+    private final int maxDepth;
+    private final double maxOverhead;
+    private final int maxBackoff;
+    private final Predicate<String> threadFilter;
+
+    private final Map<String, LongAdder> folded = new ConcurrentHashMap<>();
+    private final Map<String, EnumMap<Thread.State, Long>> stateMillis = new ConcurrentHashMap<>();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder samplingNanos = new LongAdder();
+    private volatile long intervalMillis;
+    private final Thread worker;
+
+    public ThreadStateSampler(long intervalMillis, int maxDepth, double maxOverhead, Predicate<String> threadFilter) {
+        this(intervalMillis, maxDepth, maxOverhead, 64, threadFilter);
+    }
+
+    public ThreadStateSampler(long intervalMillis, int maxDepth, double maxOverhead, int maxBackoff,
+                              Predicate<String> threadFilter) {
+        if (maxBackoff < 1) throw new IllegalArgumentException("maxBackoff must be at least 1: " + maxBackoff);
+        this.baseIntervalMillis = intervalMillis;
+        this.maxBackoff = maxBackoff;
+        this.intervalMillis = intervalMillis;
+        this.maxDepth = maxDepth;
+        this.maxOverhead = maxOverhead;
+        this.threadFilter = threadFilter;
+        this.worker = new Thread(this::loop, "ThreadStateSampler");
+        worker.setDaemon(true);
+    }
+
+    public ThreadStateSampler start() {
+        worker.start();
+        return this;
+    }
+
+    private void loop() {
+        long self = Thread.currentThread().getId();
+        while (!Thread.currentThread().isInterrupted()) {
+            long t0 = System.nanoTime();
+            sample(self, intervalMillis);
+            long cost = System.nanoTime() - t0;
+            samplingNanos.add(cost);
+            adjustInterval(cost);
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void sample(long self, long weightMillis) {
+        for (ThreadInfo info : mx.dumpAllThreads(false, false, maxDepth)) {
+            if (info == null || info.getThreadId() == self || !threadFilter.test(info.getThreadName())) continue;
+            String pool = poolName(info.getThreadName());
+            Thread.State state = info.getThreadState();
+
+            StringBuilder stack = new StringBuilder(pool);
+            StackTraceElement[] frames = info.getStackTrace();
+            for (int i = frames.length - 1; i >= 0; i--) {
+                stack.append(';').append(frames[i].getClassName()).append('.').append(frames[i].getMethodName());
+            }
+            stack.append(';').append(state);
+            folded.computeIfAbsent(stack.toString(), k -> new LongAdder()).increment();
+            // Only the sampler thread writes, so the inner EnumMap needs no locking
+            stateMillis.computeIfAbsent(pool, k -> new EnumMap<>(Thread.State.class))
+                    .merge(state, weightMillis, Long::sum);
+        }
+        samples.increment();
+    }
+
+    /** Back off while a snapshot costs more than the budget, creep back towards the base rate otherwise. */
+    private void adjustInterval(long costNanos) {
+        double overhead = costNanos / (intervalMillis * 1_000_000.0);
+        if (overhead > maxOverhead) {
+            intervalMillis = Math.min(intervalMillis * 2, baseIntervalMillis * maxBackoff);
+        } else if (overhead < maxOverhead / 4 && intervalMillis > baseIntervalMillis) {
+            intervalMillis = Math.max(baseIntervalMillis, intervalMillis / 2);
+        }
+    }
+
+    /** "pool-3-thread-7" and "Worker-12" collapse to "pool-N-thread-N" and "Worker-N". */
+    static String poolName(String threadName) {
+        return threadName.replaceAll("\\d+", "N");
+    }
+
+    public void writeFolded(Path out) throws IOException {
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(out))) {
+            folded.forEach((stack, count) -> w.println(stack + " " + count.sum()));
+        }
+    }
+
+    public void printStateBreakdown() {
+        System.out.println("========Thread State Breakdown==========");
+        stateMillis.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> {
+                    long total = e.getValue().values().stream().mapToLong(Long::longValue).sum();
+                    StringBuilder line = new StringBuilder(String.format("%-28s", e.getKey()));
+                    e.getValue().forEach((state, ms) ->
+                            line.append(String.format(" %s=%d%%", state, ms * 100 / Math.max(total, 1))));
+                    System.out.println(line);
+                });
+        System.out.printf("samples=%d, sampler cost=%d ms, current interval=%d ms%n",
+                samples.sum(), samplingNanos.sum() / 1_000_000, intervalMillis);
+    }
+
+    public void printTopStacks(int limit) {
+        System.out.println("========Hottest Stacks==========");
+        folded.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(limit)
+                .forEach(e -> System.out.println(e.getValue().sum() + "  " + e.getKey()));
+    }
+
+    @Override
+    public void close() {
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Object hotLock = new Object();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            pool.execute(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    synchronized (hotLock) { // everybody fights for one monitor → mostly BLOCKED
+                        long end = System.nanoTime() + 2_000_000;
+                        while (System.nanoTime() < end) Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+        ExecutorService idle = Executors.newFixedThreadPool(2, r -> new Thread(r, "Idle-" + r.hashCode()));
+        idle.execute(() -> { });
+        idle.execute(() -> { });
+
+        // A snapshot of every stack takes about a millisecond on an idle box and several when all
+        // cores are busy spinning like here; a 10% budget lets the interval settle within 8x of 20 ms
+        ThreadStateSampler sampler = new ThreadStateSampler(20, 32, 0.10, 8, name -> true).start();
+        try {
+            try (sampler) {
+                TimeUnit.SECONDS.sleep(3);
+            }
+            sampler.printStateBreakdown();
+            sampler.printTopStacks(5);
+            Path out = Paths.get("threads.folded");
+            sampler.writeFolded(out);
+            System.out.println("Folded stacks written to " + out.toAbsolutePath());
+        } finally {
+            pool.shutdownNow();
+            idle.shutdownNow();
+        }
+    }
+}
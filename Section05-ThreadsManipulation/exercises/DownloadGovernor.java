@@ -0,0 +1,232 @@
+package exercises;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One governor shared by every download worker: caps open connections and total byte rate.
+ * <p>
+ * Connections: a Semaphore whose permit count can be raised or lowered at runtime.
+ * <p>
+ * Bandwidth: a token bucket refilled at {@code bytesPerSecond} and holding up to one second of
+ * burst. Workers pay for the bytes after they read them. When tokens run short the waiting
+ * workers are served in order of how many bytes their file has received so far, so a file with
+ * eight connections doesn't starve a file with one.
+ */
+public class DownloadGovernor {
+
+    /** Per-file account used for fair ordering; {@code served} is written under the governor's lock. */
+    public static final class Share {
+        final String name;
+        volatile long served;
+
+        private Share(String name, long served) {
+            this.name = name;
+            this.served = served;
+        }
+
+        public long served() {
+            return served;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class Ticket {
+        final Share share;
+        final long bytes;
+        final long order;
+        final long seq;
+
+        Ticket(Share share, long bytes, long order, long seq) {
+            this.share = share;
+            this.bytes = bytes;
+            this.order = order;
+            this.seq = seq;
+        }
+    }
+
+    /** Semaphore whose size can shrink; lowering it takes effect as permits come back. */
+    private static final class ResizableSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        void shrink(int by) {
+            reducePermits(by);
+        }
+    }
+
+    private final ResizableSemaphore connections;
+
+    // Guards every mutable field below, Share.served included
+    private final ReentrantLock lock = new ReentrantLock();
+    private int maxConnections;
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>((a, b) ->
+            a.order != b.order ? Long.compare(a.order, b.order) : Long.compare(a.seq, b.seq));
+    private long bytesPerSecond;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private long seq;
+    private long virtualClock;
+
+    /** {@code bytesPerSecond <= 0} means unlimited bandwidth. */
+    public DownloadGovernor(int maxConnections, long bytesPerSecond) {
+        this.maxConnections = maxConnections;
+        this.connections = new ResizableSemaphore(maxConnections);
+        this.bytesPerSecond = bytesPerSecond;
+        this.tokens = bytesPerSecond;
+    }
+
+    /** Starts a new file at the current virtual clock, so late arrivals don't get a head start. */
+    public Share register(String name) {
+        lock.lock();
+        try {
+            return new Share(name, virtualClock);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void acquireConnection() throws InterruptedException {
+        connections.acquire();
+    }
+
+    public void releaseConnection() {
+        connections.release();
+    }
+
+    public void setMaxConnections(int max) {
+        lock.lock();
+        try {
+            int delta = max - maxConnections;
+            if (delta > 0) connections.release(delta);
+            else if (delta < 0) connections.shrink(-delta);
+            maxConnections = max;
+            System.out.println("[Governor] max connections = " + max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setRate(long newBytesPerSecond) {
+        lock.lock();
+        try {
+            refill();
+            bytesPerSecond = newBytesPerSecond;
+            tokens = Math.min(tokens, Math.max(newBytesPerSecond, 0));
+            changed.signalAll();
+            System.out.println("[Governor] rate = " + newBytesPerSecond / 1024 + " KB/s");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Largest read a worker should do between payments, so tokens are spread thinly. */
+    public int quantum() {
+        lock.lock();
+        try {
+            return bytesPerSecond <= 0 ? Integer.MAX_VALUE : (int) Math.max(4096, Math.min(64 * 1024, bytesPerSecond / 16));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Pays for {@code bytes} already read on behalf of {@code share}, waiting for tokens if needed. */
+    public void acquireBytes(Share share, long bytes) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (bytesPerSecond <= 0) {
+                charge(share, bytes);
+                return;
+            }
+            Ticket ticket = new Ticket(share, bytes, share.served(), seq++);
+            waiting.add(ticket);
+            try {
+                while (true) {
+                    refill();
+                    if (bytesPerSecond <= 0) break;
+                    // A request bigger than the bucket goes through once the bucket is full, leaving debt
+                    double needed = Math.min(ticket.bytes, bytesPerSecond);
+                    if (waiting.peek() == ticket && tokens >= needed) break;
+                    if (waiting.peek() == ticket) {
+                        long nanos = (long) ((needed - tokens) * 1_000_000_000L / bytesPerSecond);
+                        changed.awaitNanos(Math.max(nanos, 100_000));
+                    } else {
+                        changed.await();
+                    }
+                }
+            } finally {
+                waiting.remove(ticket);
+                changed.signalAll();
+            }
+            tokens -= bytes;
+            charge(share, bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Caller holds {@link #lock}. */
+    private void charge(Share share, long bytes) {
+        share.served += bytes;
+        virtualClock = Math.max(virtualClock, share.served - bytes);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            tokens = Math.min(bytesPerSecond, tokens + (now - lastRefill) * (double) bytesPerSecond / 1_000_000_000L);
+        }
+        lastRefill = now;
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (LocalRangeServer server = new LocalRangeServer(4 * 1024 * 1024, 0)) {
+            DownloadGovernor governor = new DownloadGovernor(3, 2 * 1024 * 1024);
+            // File 1 gets four workers, file 2 only one: fairness should still split bandwidth evenly
+            SegmentedFileDownloader wide = new SegmentedFileDownloader(4, 256 * 1024, 3, 64 * 1024, governor);
+            SegmentedFileDownloader narrow = new SegmentedFileDownloader(1, 256 * 1024, 3, 64 * 1024, governor);
+
+            List<Thread> threads = new ArrayList<>();
+            List<AtomicLong> progress = List.of(new AtomicLong(), new AtomicLong());
+            SegmentedFileDownloader[] downloaders = {wide, narrow};
+            for (int i = 0; i < 2; i++) {
+                final int index = i;
+                Path target = Paths.get("governed_" + (i + 1) + ".bin");
+                threads.add(new Thread(() -> {
+                    try {
+                        downloaders[index].download(server.url(), target, progress.get(index));
+                        Files.deleteIfExists(target);
+                    } catch (Exception e) {
+                        System.err.println(Thread.currentThread().getName() + " failed: " + e.getMessage());
+                    }
+                }, "Downloader-" + (i + 1)));
+            }
+            threads.forEach(Thread::start);
+
+            for (int second = 1; threads.stream().anyMatch(Thread::isAlive); second++) {
+                TimeUnit.SECONDS.sleep(1);
+                System.out.printf("[Monitor] t=%ds file1=%d KB file2=%d KB%n", second,
+                        progress.get(0).get() / 1024, progress.get(1).get() / 1024);
+                if (second == 1) governor.setRate(4 * 1024 * 1024);
+                if (second == 2) governor.setMaxConnections(2);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package exercises;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Checkpoint journal for one download, kept in a small memory-mapped file next to the target.
+ * <p>
+ * Layout: a header (magic, total length, slots in use, SHA-256 of URL and validator) followed by
+ * fixed slots of (start, committed, end). Each slot is one segment; bytes [start, committed) are
+ * on disk. The validator is the server's ETag or Last-Modified: without one there is no way to
+ * tell a changed file of the same length from the old one, so such downloads never resume.
+ * <p>
+ * Workers record progress in memory only. {@link #checkpoint(FileChannel)} first forces the
+ * data file and only then copies the offsets into the mapping and forces it, so the journal
+ * never claims bytes that could still be lost in a crash.
+ */
+public class DownloadJournal implements AutoCloseable {
+    private static final int MAGIC = 0x444C4A32; // "DLJ2"
+    private static final int IDENTITY = 24;
+    private static final int HEADER = 64;
+    private static final int SLOT = 24;
+    static final int MAX_SLOTS = 1024;
+
+    private final Path path;
+    private final FileChannel file;
+    private final MappedByteBuffer map;
+    private final long length;
+    private final AtomicLongArray slots = new AtomicLongArray(MAX_SLOTS * 3);
+    private int used;
+    private final boolean resumed;
+
+    private DownloadJournal(Path path, long length, byte[] identity) throws IOException {
+        this.path = path;
+        this.length = length;
+        this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.map = file.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) MAX_SLOTS * SLOT);
+
+        byte[] stored = new byte[32];
+        map.get(IDENTITY, stored);
+        boolean matches = map.getInt(0) == MAGIC && map.getLong(8) == length
+                && identity != null && MessageDigest.isEqual(stored, identity);
+        if (matches) {
+            used = map.getInt(16);
+            for (int i = 0; i < used * 3; i++) slots.set(i, map.getLong(HEADER + i * 8));
+        } else {
+            map.putInt(0, MAGIC);
+            map.putLong(8, length);
+            map.putInt(16, 0);
+            map.put(IDENTITY, identity != null ? identity : new byte[32]);
+        }
+        this.resumed = matches && used > 0;
+    }
+
+    /**
+     * Opens the journal for {@code length} bytes from {@code url}, discarding it if it was written for
+     * another URL, length or {@code validator} (ETag or Last-Modified; null means never resume).
+     */
+    public static DownloadJournal open(Path target, long length, String url, String validator) throws IOException {
+        byte[] identity = null;
+        if (validator != null) {
+            try {
+                identity = MessageDigest.getInstance("SHA-256")
+                        .digest((url + "\n" + validator).getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return new DownloadJournal(target.resolveSibling(target.getFileName() + ".journal"), length, identity);
+    }
+
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /** Segments that still have bytes to fetch, as {slot, committed, end}. */
+    public synchronized List<long[]> pending() {
+        List<long[]> result = new ArrayList<>();
+        for (int i = 0; i < used; i++) {
+            long committed = slots.get(i * 3 + 1);
+            long end = slots.get(i * 3 + 2);
+            if (committed < end) result.add(new long[]{i, committed, end});
+        }
+        return result;
+    }
+
+    public synchronized long completedBytes() {
+        long done = 0;
+        for (int i = 0; i < used; i++) done += slots.get(i * 3 + 1) - slots.get(i * 3);
+        return done;
+    }
+
+    /** Forgets every slot, e.g. when the data file no longer matches the journal. */
+    public synchronized void reset() {
+        used = 0;
+    }
+
+    public synchronized boolean hasFreeSlot() {
+        return used < MAX_SLOTS;
+    }
+
+    /** Reserves an empty slot, or returns -1 when the journal is full. */
+    public synchronized int allocate() {
+        if (used == MAX_SLOTS) return -1;
+        int slot = used++;
+        define(slot, 0, 0);
+        return slot;
+    }
+
+    public void define(int slot, long start, long end) {
+        slots.set(slot * 3, start);
+        slots.set(slot * 3 + 1, start);
+        slots.set(slot * 3 + 2, end);
+    }
+
+    public void commit(int slot, long committed) {
+        if (slot >= 0) slots.set(slot * 3 + 1, committed);
+    }
+
+    public void setEnd(int slot, long end) {
+        if (slot >= 0) slots.set(slot * 3 + 2, end);
+    }
+
+    /** First byte not yet known to be on disk: everything before it is contiguous. */
+    public synchronized long watermark() {
+        long low = length;
+        for (int i = 0; i < used; i++) {
+            long committed = slots.get(i * 3 + 1);
+            if (committed < slots.get(i * 3 + 2)) low = Math.min(low, committed);
+        }
+        return low;
+    }
+
+    /** Makes the data durable, then the offsets describing it. */
+    public synchronized void checkpoint(FileChannel data) throws IOException {
+        // Snapshot first: workers keep committing while the force runs, and an offset read after
+        // it could cover bytes that are not on disk yet
+        long[] snapshot = new long[used * 3];
+        for (int i = 0; i < snapshot.length; i++) snapshot[i] = slots.get(i);
+        data.force(false);
+        for (int i = 0; i < snapshot.length; i++) map.putLong(HEADER + i * 8, snapshot[i]);
+        map.putInt(16, snapshot.length / 3);
+        map.force();
+    }
+
+    /** Called once the download is verified: the journal has nothing left to say. */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
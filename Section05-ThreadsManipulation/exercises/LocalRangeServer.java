@@ -0,0 +1,112 @@
+package exercises;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tiny in-process HTTP stand-in used to exercise the downloaders without the internet.
+ * <p>
+ * Serves one random payload at "/file.bin", answers HEAD with Content-Length and an ETag, and
+ * honours single "Range: bytes=a-b" requests with 206 Partial Content unless an "If-Range"
+ * names a different ETag, in which case the whole current payload comes back with 200.
+ * Every {@code failEvery}-th GET is cut off half way to simulate a flaky link. With
+ * {@code honourRanges} off it still advertises ranges but answers every GET with 200 and the
+ * whole body, like a misbehaving proxy.
+ */
+public class LocalRangeServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService pool;
+    private volatile byte[] payload;
+    private volatile String etag;
+    private final int failEvery;
+    private final boolean honourRanges;
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    public LocalRangeServer(int payloadSize, int failEvery) throws IOException {
+        this(payloadSize, failEvery, true);
+    }
+
+    public LocalRangeServer(int payloadSize, int failEvery, boolean honourRanges) throws IOException {
+        this.payload = new byte[payloadSize];
+        new Random(42).nextBytes(payload);
+        this.etag = "\"42\"";
+        this.failEvery = failEvery;
+        this.honourRanges = honourRanges;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.pool = Executors.newFixedThreadPool(16);
+        server.createContext("/file.bin", this::handle);
+        server.setExecutor(pool);
+        server.start();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/file.bin";
+    }
+
+    public byte[] payload() {
+        return payload;
+    }
+
+    /** Swaps in different content of the same length, as if the file had been replaced on the server. */
+    public void replacePayload(long seed) {
+        byte[] next = new byte[payload.length];
+        new Random(seed).nextBytes(next);
+        payload = next;
+        etag = "\"" + seed + "\"";
+    }
+
+    public int requests() {
+        return requestCount.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] payload = this.payload;
+            String etag = this.etag;
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().add("ETag", etag);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().add("Content-Length", String.valueOf(payload.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            long start = 0;
+            long end = payload.length - 1;
+            String range = honourRanges ? exchange.getRequestHeaders().getFirst("Range") : null;
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            if (ifRange != null && !ifRange.equals(etag)) range = null;
+            if (range != null && range.startsWith("bytes=")) {
+                String[] parts = range.substring(6).split("-", 2);
+                start = Long.parseLong(parts[0]);
+                if (!parts[1].isEmpty()) end = Math.min(end, Long.parseLong(parts[1]));
+                exchange.getResponseHeaders().add("Content-Range",
+                        "bytes " + start + "-" + end + "/" + payload.length);
+            }
+            long length = end - start + 1;
+            exchange.sendResponseHeaders(range == null ? 200 : 206, length);
+
+            int request = requestCount.incrementAndGet();
+            boolean cutOff = failEvery > 0 && request % failEvery == 0;
+            long toSend = cutOff ? length / 2 : length;
+            OutputStream out = exchange.getResponseBody();
+            out.write(payload, (int) start, (int) toSend);
+            out.flush();
+            // Closing short of Content-Length makes the client see a premature EOF
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        pool.shutdownNow();
+    }
+}
@@ -1,13 +1,30 @@
 package exercises;
 
 import java.io.*;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class RealFileDownloader {
 
     public static void main(String[] args) throws InterruptedException {
+        // "--segmented" fetches each file over several ranged connections instead of one stream
+        boolean segmented = Arrays.asList(args).contains("--segmented");
+        // "--chunk=<bytes>" sizes the NIO transfer steps (default 1 MB)
+        int chunkSize = (int) longArg(args, "--chunk=", ChannelTransfer.DEFAULT_CHUNK_SIZE);
+        // "--connections=<n>" and "--rate=<bytes/s>" are shared by every file (0 = unlimited rate)
+        DownloadGovernor governor = new DownloadGovernor(
+                (int) longArg(args, "--connections=", 8), longArg(args, "--rate=", 0));
+        SegmentedFileDownloader segmentedDownloader =
+                new SegmentedFileDownloader(4, 1024 * 1024, 3, chunkSize, governor);
+
         // 3 example files (you can change these to real URLs)
         List<String> urls = Arrays.asList(
                 "https://speed.hetzner.de/100MB.bin",
@@ -56,19 +73,52 @@ public class RealFileDownloader {
             String urlStr = urls.get(i);
             threads[i] = new Thread(() -> {
                 String outputName = "download_" + (fileIndex + 1) + ".bin";
-                try (InputStream in = new BufferedInputStream(new URL(urlStr).openStream());
-                     FileOutputStream out = new FileOutputStream(outputName)) {
-
-                    byte[] buffer = new byte[8192];
-                    int bytesRead;
-                    while ((bytesRead = in.read(buffer)) != -1) {
-                        out.write(buffer, 0, bytesRead);
-                        totalBytesDownloaded.addAndGet(bytesRead);
+                if (segmented) {
+                    try {
+                        segmentedDownloader.download(urlStr, Paths.get(outputName), totalBytesDownloaded);
+                        System.out.println(Thread.currentThread().getName() + " finished downloading " + outputName);
+                    } catch (IOException e) {
+                        System.err.println(Thread.currentThread().getName() + " failed: " + e.getMessage());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return;
+                }
+                try {
+                    if (urlStr.startsWith("file:")) {
+                        // Local source: kernel-side copy via transferTo
+                        Path source = Paths.get(new URL(urlStr).toURI());
+                        ChannelTransfer.copyLocal(source, Paths.get(outputName), chunkSize,
+                                totalBytesDownloaded::addAndGet);
+                    } else {
+                        governor.acquireConnection();
+                        DownloadGovernor.Share share = governor.register(outputName);
+                        try (ReadableByteChannel in = Channels.newChannel(new URL(urlStr).openStream());
+                             FileChannel out = FileChannel.open(Paths.get(outputName), StandardOpenOption.CREATE,
+                                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                            ChannelTransfer.transferFrom(in, out, Math.min(chunkSize, governor.quantum()), n -> {
+                                try {
+                                    governor.acquireBytes(share, n);
+                                } catch (InterruptedException e) {
+                                    // Carrying on would skip throttling for the rest of the file
+                                    Thread.currentThread().interrupt();
+                                    throw new UncheckedIOException(
+                                            new InterruptedIOException("interrupted waiting for bandwidth"));
+                                }
+                                totalBytesDownloaded.addAndGet(n);
+                            });
+                        } finally {
+                            governor.releaseConnection();
+                        }
                     }
                     System.out.println(Thread.currentThread().getName() + " finished downloading " + outputName);
 
-                } catch (IOException e) {
+                } catch (IOException | URISyntaxException e) {
                     System.err.println(Thread.currentThread().getName() + " failed: " + e.getMessage());
+                } catch (UncheckedIOException e) {
+                    System.err.println(Thread.currentThread().getName() + " aborted: " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
             }, "Downloader-" + (fileIndex + 1));
         }
@@ -81,4 +131,11 @@ public class RealFileDownloader {
 
         System.out.println("✅ All downloads completed!");
     }
+
+    private static long longArg(String[] args, String prefix, long defaultValue) {
+        return Arrays.stream(args)
+                .filter(a -> a.startsWith(prefix))
+                .mapToLong(a -> Long.parseLong(a.substring(prefix.length())))
+                .findFirst().orElse(defaultValue);
+    }
 }
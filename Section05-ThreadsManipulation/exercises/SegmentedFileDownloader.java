@@ -0,0 +1,516 @@
+package exercises;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Segmented downloader — one file, many connections.
+ * <p>
+ * The file is split into byte ranges that a small pool of workers fetch with
+ * "Range" requests and write into a preallocated file with positional
+ * {@link FileChannel#write(ByteBuffer, long)} calls, so no worker ever waits for another.
+ * <p>
+ * A failed segment is put back on the queue and resumed from its last written byte.
+ * When the queue runs dry an idle worker steals the back half of the largest
+ * segment still in flight, so a slow connection never holds up the tail of the download.
+ * <p>
+ * Progress is checkpointed to a {@link DownloadJournal}, so a download that dies half way
+ * resumes from the last durable offset of each segment on the next run — provided the URL,
+ * length and ETag (or Last-Modified) still match what the journal recorded — and a
+ * {@link StreamingChecksum} hashes the file while it is still being written.
+ */
+public class SegmentedFileDownloader {
+
+    /**
+     * A byte range [start, end). {@code next} is the first byte not yet claimed by the
+     * owning worker; {@code end} shrinks when an idle worker splits the segment.
+     */
+    static class Segment {
+        final long start;
+        private long next;
+        private long end;
+        int attempts;
+        int slot = -1;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.next = start;
+            this.end = end;
+        }
+
+        /** Claims up to {@code wanted} bytes at the current position, returns 0 when done. */
+        synchronized int claim(int wanted) {
+            int granted = (int) Math.min(wanted, end - next);
+            next += granted;
+            return granted;
+        }
+
+        synchronized long next() {
+            return next;
+        }
+
+        synchronized long end() {
+            return end;
+        }
+
+        synchronized long remaining() {
+            return end - next;
+        }
+
+        /** Gives away the back half of what is left, or null if too small to be worth it. */
+        synchronized Segment splitIfLarger(long minSize) {
+            long left = end - next;
+            if (left < 2 * minSize) return null;
+            long mid = next + left / 2;
+            Segment tail = new Segment(mid, end);
+            end = mid;
+            return tail;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "[" + start + ".." + end + ") @" + next;
+        }
+    }
+
+    // A stalled connection times out and its segment is retried or stolen, instead of hanging
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final int workers;
+    private final long minSegmentSize;
+    private final int maxRetries;
+    // One direct buffer per worker thread, reused across segments and retries
+    private final ThreadLocal<ByteBuffer> buffers;
+    private final DownloadGovernor governor;
+
+    public SegmentedFileDownloader(int workers, long minSegmentSize, int maxRetries) {
+        this(workers, minSegmentSize, maxRetries, ChannelTransfer.DEFAULT_CHUNK_SIZE);
+    }
+
+    public SegmentedFileDownloader(int workers, long minSegmentSize, int maxRetries, int chunkSize) {
+        this(workers, minSegmentSize, maxRetries, chunkSize, null);
+    }
+
+    /** {@code governor} may be shared with other downloaders to cap connections and bandwidth together. */
+    public SegmentedFileDownloader(int workers, long minSegmentSize, int maxRetries, int chunkSize,
+                                   DownloadGovernor governor) {
+        this.governor = governor;
+        this.workers = workers;
+        this.minSegmentSize = minSegmentSize;
+        this.maxRetries = maxRetries;
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(chunkSize));
+    }
+
+    public void download(String url, Path target, AtomicLong progress) throws IOException, InterruptedException {
+        download(url, target, progress, null);
+    }
+
+    /**
+     * Downloads {@code url} into {@code target}, adding every written byte to {@code progress},
+     * and returns the SHA-256 of the result. If {@code expectedSha256} is given and doesn't match,
+     * the journal is dropped so the next attempt starts clean.
+     * Falls back to a single stream (no resume, no checksum) when the server does not advertise
+     * range support.
+     */
+    public String download(String url, Path target, AtomicLong progress, String expectedSha256)
+            throws IOException, InterruptedException {
+        try {
+            return downloadOrThrowUnchecked(url, target, progress, expectedSha256);
+        } catch (UncheckedIOException e) {
+            // Local write failures travel unchecked inside the workers; callers only expect IOException
+            throw e.getCause();
+        }
+    }
+
+    private String downloadOrThrowUnchecked(String url, Path target, AtomicLong progress, String expectedSha256)
+            throws IOException, InterruptedException {
+        long length;
+        boolean ranges;
+        String validator;
+        HttpURLConnection head = open(url);
+        try {
+            head.setRequestMethod("HEAD");
+            length = head.getContentLengthLong();
+            ranges = "bytes".equalsIgnoreCase(head.getHeaderField("Accept-Ranges"));
+            // If-Range only accepts a strong ETag; otherwise fall back to Last-Modified
+            String etag = head.getHeaderField("ETag");
+            validator = etag != null && !etag.startsWith("W/") ? etag : head.getHeaderField("Last-Modified");
+        } finally {
+            head.disconnect();
+        }
+
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            if (length <= 0 || !ranges) {
+                channel.truncate(0);
+                Segment whole = new Segment(0, Long.MAX_VALUE);
+                fetch(url, null, whole, channel, null, share(target), progress, new AtomicLong(), false);
+                return null;
+            }
+
+            try (DownloadJournal journal = DownloadJournal.open(target, length, url, validator)) {
+                List<Segment> segments = new ArrayList<>();
+                if (journal.isResumed() && channel.size() == length) {
+                    for (long[] slot : journal.pending()) {
+                        Segment segment = new Segment(slot[1], slot[2]);
+                        segment.slot = (int) slot[0];
+                        segments.add(segment);
+                    }
+                    long done = journal.completedBytes();
+                    progress.addAndGet(done);
+                    System.out.println("Resuming " + target + " with " + done + "/" + length + " bytes on disk");
+                } else {
+                    journal.reset();
+                    // Preallocate so every worker can write at its own offset
+                    channel.truncate(length);
+                    if (channel.size() < length) channel.write(ByteBuffer.wrap(new byte[1]), length - 1);
+                    for (Segment segment : split(length)) {
+                        segment.slot = journal.allocate();
+                        journal.define(segment.slot, segment.start, segment.end());
+                        segments.add(segment);
+                    }
+                }
+                journal.checkpoint(channel);
+
+                StreamingChecksum checksum = new StreamingChecksum(channel, length, journal::watermark);
+                checksum.start();
+                Thread checkpointer = new Thread(() -> {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        try {
+                            Thread.sleep(500);
+                            journal.checkpoint(channel);
+                        } catch (InterruptedException e) {
+                            return;
+                        } catch (IOException e) {
+                            System.err.println("Checkpoint failed: " + e.getMessage());
+                        }
+                    }
+                }, "Checkpointer");
+                checkpointer.setDaemon(true);
+                checkpointer.start();
+
+                try {
+                    runSegments(url, validator, channel, journal, share(target), segments, progress);
+                } catch (IOException | InterruptedException e) {
+                    checksum.interrupt();
+                    throw e;
+                } finally {
+                    checkpointer.interrupt();
+                    checkpointer.join();
+                    journal.checkpoint(channel);
+                }
+
+                String sha256 = checksum.await();
+                journal.delete();
+                if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+                    throw new IOException("Checksum mismatch for " + target + ": expected "
+                            + expectedSha256 + " but got " + sha256);
+                }
+                return sha256;
+            }
+        }
+    }
+
+    private DownloadGovernor.Share share(Path target) {
+        return governor == null ? null : governor.register(target.getFileName().toString());
+    }
+
+    List<Segment> split(long length) {
+        int count = (int) Math.max(1, Math.min(workers, length / minSegmentSize));
+        List<Segment> segments = new ArrayList<>(count);
+        long size = length / count;
+        for (int i = 0; i < count; i++) {
+            long start = i * size;
+            long end = i == count - 1 ? length : start + size;
+            segments.add(new Segment(start, end));
+        }
+        return segments;
+    }
+
+    private void runSegments(String url, String validator, FileChannel channel, DownloadJournal journal, DownloadGovernor.Share share,
+                             List<Segment> initial, AtomicLong progress)
+            throws IOException, InterruptedException {
+        BlockingDeque<Segment> pending = new LinkedBlockingDeque<>(initial);
+        List<Segment> inFlight = new CopyOnWriteArrayList<>();
+        long total = initial.stream().mapToLong(Segment::remaining).sum();
+        AtomicLong written = new AtomicLong();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r);
+            t.setName("Segment-" + t.getId());
+            return t;
+        });
+
+        for (int i = 0; i < workers; i++) {
+            pool.execute(() -> {
+                while (written.get() < total && failure.get() == null) {
+                    Segment segment;
+                    try {
+                        segment = pending.poll(20, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (segment == null) segment = steal(inFlight, journal);
+                    if (segment == null) continue;
+
+                    inFlight.add(segment);
+                    try {
+                        fetch(url, validator, segment, channel, journal, share, progress, written, true);
+                    } catch (UncheckedIOException e) {
+                        failure.compareAndSet(null, e.getCause());
+                    } catch (IOException e) {
+                        if (isFatal(e)) {
+                            failure.compareAndSet(null, e);
+                        } else if (++segment.attempts > maxRetries) {
+                            failure.compareAndSet(null, new IOException("Segment " + segment + " gave up", e));
+                        } else {
+                            System.err.println(Thread.currentThread().getName() + " retrying " + segment
+                                    + " (" + e.getMessage() + ")");
+                            pending.addFirst(segment);
+                        }
+                    } finally {
+                        inFlight.remove(segment);
+                    }
+                }
+            });
+        }
+
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, new InterruptedIOException("download interrupted"));
+            pool.shutdownNow();
+            // The caller closes the channel once we return, so the workers must be gone first
+            while (!pool.isTerminated()) {
+                try {
+                    pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+                } catch (InterruptedException again) {
+                    // already on the way out
+                }
+            }
+            throw e;
+        }
+        if (failure.get() != null) throw failure.get();
+    }
+
+    /** Splits the largest in-flight segment so an idle worker can help finish it. */
+    private Segment steal(List<Segment> inFlight, DownloadJournal journal) {
+        Segment largest = null;
+        for (Segment s : inFlight) {
+            if (largest == null || s.remaining() > largest.remaining()) largest = s;
+        }
+        if (largest == null || largest.remaining() < 2 * minSegmentSize) return null;
+
+        // Holding the journal's lock keeps other stealers and checkpoints out, so a slot that is
+        // free before the split is still free after it
+        synchronized (journal) {
+            if (!journal.hasFreeSlot()) return null;
+            Segment tail = largest.splitIfLarger(minSegmentSize);
+            if (tail == null) return null;
+            // Journal the tail before shrinking its parent: a crash in between only overlaps ranges
+            tail.slot = journal.allocate();
+            journal.define(tail.slot, tail.start, tail.end());
+            journal.setEnd(largest.slot, largest.end());
+            return tail;
+        }
+    }
+
+    /**
+     * Streams the segment's remaining bytes into the file. Network errors surface as
+     * {@link IOException} and are retryable; a failed local write is not, because the claimed
+     * bytes are lost, so it is rethrown as {@link UncheckedIOException}.
+     */
+    private void fetch(String url, String validator, Segment segment, FileChannel channel, DownloadJournal journal,
+                       DownloadGovernor.Share share, AtomicLong progress, AtomicLong written, boolean ranged)
+            throws IOException {
+        if (governor == null) {
+            fetchUngoverned(url, validator, segment, channel, journal, share, progress, written, ranged);
+            return;
+        }
+        try {
+            governor.acquireConnection();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for a connection");
+        }
+        try {
+            fetchUngoverned(url, validator, segment, channel, journal, share, progress, written, ranged);
+        } finally {
+            governor.releaseConnection();
+        }
+    }
+
+    private void fetchUngoverned(String url, String validator, Segment segment, FileChannel channel, DownloadJournal journal,
+                                 DownloadGovernor.Share share, AtomicLong progress, AtomicLong written,
+                                 boolean ranged) throws IOException {
+        HttpURLConnection conn = open(url);
+        long from = segment.next();
+        if (ranged) {
+            conn.setRequestProperty("Range", "bytes=" + from + "-" + (segment.end() - 1));
+            // If the file changed since HEAD the server sends 200 and the whole new body, which
+            // checkPartialContent rejects rather than mixing two versions in one file
+            if (validator != null) conn.setRequestProperty("If-Range", validator);
+        }
+        try (ReadableByteChannel in = Channels.newChannel(conn.getInputStream())) {
+            if (ranged) checkPartialContent(conn, from);
+            ByteBuffer buffer = buffers.get();
+            while (true) {
+                buffer.clear();
+                int quantum = governor == null ? buffer.capacity() : Math.min(buffer.capacity(), governor.quantum());
+                buffer.limit((int) Math.min(quantum, segment.remaining()));
+                int read = in.read(buffer);
+                if (read == -1) break;
+                if (governor != null) {
+                    try {
+                        governor.acquireBytes(share, read);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("interrupted waiting for bandwidth");
+                    }
+                }
+                buffer.flip();
+                // Claim before writing: a concurrent split can only take bytes after the claim
+                long position = segment.next();
+                int granted = segment.claim(buffer.remaining());
+                buffer.limit(granted);
+                try {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, position + buffer.position());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (journal != null) journal.commit(segment.slot, position + granted);
+                written.addAndGet(granted);
+                progress.addAndGet(granted);
+                if (segment.remaining() == 0) break;
+            }
+        } finally {
+            conn.disconnect();
+        }
+        if (ranged && segment.remaining() > 0) {
+            throw new IOException("premature end of stream at " + segment.next());
+        }
+    }
+
+    /**
+     * A 200 answer to a Range request carries the file from byte 0, which written at
+     * {@code from} would silently corrupt it; so does a 206 for a different range.
+     */
+    private static void checkPartialContent(HttpURLConnection conn, long from) throws IOException {
+        int status = conn.getResponseCode();
+        if (status != HttpURLConnection.HTTP_PARTIAL) {
+            throw new RangeIgnoredException("expected 206 for bytes " + from + "- but got " + status);
+        }
+        String contentRange = conn.getHeaderField("Content-Range");
+        long start = -1;
+        if (contentRange != null && contentRange.startsWith("bytes ")) {
+            try {
+                start = Long.parseLong(contentRange.substring(6, contentRange.indexOf('-')).trim());
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                // reported below
+            }
+        }
+        if (start != from) {
+            throw new RangeIgnoredException("asked for bytes " + from + "- but got Content-Range: " + contentRange);
+        }
+    }
+
+    /** The server (or a proxy in front of it) doesn't honour ranges; retrying won't help. */
+    private static HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+        return conn;
+    }
+
+    /** Interrupts and servers ignoring ranges end the download; timeouts and other I/O errors are retried. */
+    private static boolean isFatal(IOException e) {
+        if (e instanceof SocketTimeoutException) return false; // an InterruptedIOException, but not an interrupt
+        return e instanceof InterruptedIOException || e instanceof RangeIgnoredException;
+    }
+
+    static class RangeIgnoredException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RangeIgnoredException(String message) {
+            super(message);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (LocalRangeServer server = new LocalRangeServer(8 * 1024 * 1024, 3)) {
+            Path target = Paths.get("segmented_download.bin");
+            String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(server.payload()));
+
+            // First attempt gives up on the first broken connection and leaves a journal behind
+            AtomicLong progress = new AtomicLong();
+            try {
+                new SegmentedFileDownloader(4, 256 * 1024, 0).download(server.url(), target, progress, expected);
+            } catch (IOException e) {
+                System.out.println("First attempt failed after " + progress.get() + " bytes: " + e.getMessage());
+            }
+
+            progress.set(0);
+            long t0 = System.nanoTime();
+            String sha256 = new SegmentedFileDownloader(4, 256 * 1024, 5).download(server.url(), target, progress, expected);
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+
+            boolean same = Arrays.equals(server.payload(), Files.readAllBytes(target));
+            System.out.printf("Downloaded %d bytes in %d ms over %d requests, content match = %s, sha256 = %s%n",
+                    progress.get(), ms, server.requests(), same, sha256);
+
+            // Interrupted again, but this time the file is replaced on the server before the retry:
+            // same URL and length, new ETag, so the journal must be thrown away
+            Files.deleteIfExists(target);
+            try {
+                new SegmentedFileDownloader(4, 256 * 1024, 0).download(server.url(), target, new AtomicLong());
+            } catch (IOException e) {
+                System.out.println("Third attempt failed, journal left behind: " + e.getMessage());
+            }
+            server.replacePayload(7);
+            new SegmentedFileDownloader(4, 256 * 1024, 5).download(server.url(), target, new AtomicLong());
+            System.out.println("After the file changed on the server, content match = "
+                    + Arrays.equals(server.payload(), Files.readAllBytes(target)));
+            Files.deleteIfExists(target);
+        }
+
+        // A proxy that drops Range and answers 200 must fail the download, not scramble the file
+        try (LocalRangeServer server = new LocalRangeServer(2 * 1024 * 1024, 0, false)) {
+            Path target = Paths.get("segmented_norange.bin");
+            try {
+                new SegmentedFileDownloader(4, 256 * 1024, 5).download(server.url(), target, new AtomicLong());
+                System.out.println("Range-ignoring server was not detected");
+            } catch (IOException e) {
+                System.out.println("Range-ignoring server rejected: " + e.getMessage());
+            } finally {
+                Files.deleteIfExists(target);
+                Files.deleteIfExists(target.resolveSibling(target.getFileName() + ".journal"));
+            }
+        }
+    }
+}
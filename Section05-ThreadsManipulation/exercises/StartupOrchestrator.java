@@ -0,0 +1,196 @@
+package exercises;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Practice 510, generalised — dependency-driven parallel startup.
+ * <p>
+ * Instead of hand-written join() chains, each component declares what it depends on.
+ * The orchestrator checks the graph for unknown names and cycles before anything runs,
+ * then starts every component on a pool the moment its last dependency finishes.
+ * Afterwards it prints per-component timings and the critical path — the chain of
+ * components that actually decided how long boot took.
+ */
+public class StartupOrchestrator {
+
+    /** Startup work for one component; may throw to abort the boot. */
+    @FunctionalInterface
+    public interface Init {
+        void run() throws Exception;
+    }
+
+    private static final class Component {
+        final String name;
+        final List<String> dependsOn;
+        final Init init;
+        final List<Component> dependents = new ArrayList<>();
+        final AtomicInteger waitingFor = new AtomicInteger();
+        volatile long startNanos;
+        volatile long endNanos;
+
+        Component(String name, List<String> dependsOn, Init init) {
+            this.name = name;
+            this.dependsOn = dependsOn;
+            this.init = init;
+        }
+
+        long millis() {
+            return (endNanos - startNanos) / 1_000_000;
+        }
+    }
+
+    private final Map<String, Component> components = new LinkedHashMap<>();
+    private final int threads;
+
+    public StartupOrchestrator(int threads) {
+        this.threads = threads;
+    }
+
+    public StartupOrchestrator add(String name, Init init, String... dependsOn) {
+        if (components.containsKey(name)) throw new IllegalArgumentException("Duplicate component " + name);
+        components.put(name, new Component(name, List.of(dependsOn), init));
+        return this;
+    }
+
+    /** Fails fast on unknown dependencies or cycles, naming the cycle. */
+    private void validate() {
+        for (Component c : components.values()) {
+            for (String dep : c.dependsOn) {
+                if (!components.containsKey(dep)) {
+                    throw new IllegalStateException(c.name + " depends on unknown component " + dep);
+                }
+            }
+        }
+        Map<String, Integer> state = new HashMap<>(); // 1 = on the current path, 2 = done
+        for (String name : components.keySet()) {
+            findCycle(name, state, new ArrayDeque<>());
+        }
+    }
+
+    private void findCycle(String name, Map<String, Integer> state, Deque<String> path) {
+        Integer s = state.get(name);
+        if (s != null && s == 2) return;
+        path.addLast(name);
+        if (s != null) {
+            List<String> cycle = new ArrayList<>(path);
+            throw new IllegalStateException("Dependency cycle: "
+                    + String.join(" -> ", cycle.subList(cycle.indexOf(name), cycle.size())));
+        }
+        state.put(name, 1);
+        for (String dep : components.get(name).dependsOn) findCycle(dep, state, path);
+        state.put(name, 2);
+        path.removeLast();
+    }
+
+    /** Runs every component, returning once all have started or throwing the first failure. */
+    public void start() throws InterruptedException, ExecutionException {
+        validate();
+        for (Component c : components.values()) {
+            c.waitingFor.set(c.dependsOn.size());
+            for (String dep : c.dependsOn) components.get(dep).dependents.add(c);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(components.size());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long boot = System.nanoTime();
+        try {
+            components.values().stream()
+                    .filter(c -> c.dependsOn.isEmpty())
+                    .forEach(c -> submit(pool, c, done, failure));
+
+            // On failure the remaining count never reaches zero, so poll for it
+            while (!done.await(50, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) break;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failure.get() != null) throw new ExecutionException("Startup failed", failure.get());
+        report(boot);
+    }
+
+    private void submit(ExecutorService pool, Component c, CountDownLatch done, AtomicReference<Throwable> failure) {
+        try {
+            pool.execute(() -> run(pool, c, done, failure));
+        } catch (RejectedExecutionException e) {
+            // boot already aborted
+        }
+    }
+
+    private void run(ExecutorService pool, Component c, CountDownLatch done, AtomicReference<Throwable> failure) {
+        if (failure.get() != null) return;
+        c.startNanos = System.nanoTime();
+        try {
+            c.init.run();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, new IllegalStateException(c.name + " failed to start", t));
+            return;
+        }
+        c.endNanos = System.nanoTime();
+        done.countDown();
+        for (Component next : c.dependents) {
+            if (next.waitingFor.decrementAndGet() == 0) submit(pool, next, done, failure);
+        }
+    }
+
+    private void report(long boot) {
+        System.out.println("========Startup Timings==========");
+        components.values().stream()
+                .sorted(Comparator.comparingLong(c -> c.startNanos))
+                .forEach(c -> System.out.printf("%-14s start +%5d ms  took %5d ms  after %s%n",
+                        c.name, (c.startNanos - boot) / 1_000_000, c.millis(), c.dependsOn));
+
+        // Walk back from the last finisher through whichever dependency finished last
+        Component last = components.values().stream()
+                .max(Comparator.comparingLong(c -> c.endNanos)).orElse(null);
+        if (last == null) {
+            System.out.println("Critical path (0 ms): no components registered");
+            return;
+        }
+        Deque<Component> path = new ArrayDeque<>();
+        for (Component c = last; c != null; ) {
+            path.addFirst(c);
+            c = c.dependsOn.stream().map(components::get)
+                    .max(Comparator.comparingLong(d -> d.endNanos)).orElse(null);
+        }
+        long total = (last.endNanos - boot) / 1_000_000;
+        System.out.println("Critical path (" + total + " ms):");
+        for (Component c : path) {
+            System.out.printf("  %-14s %5d ms (%d%%)%n", c.name, c.millis(), total == 0 ? 0 : c.millis() * 100 / total);
+        }
+    }
+
+    private static Init sleep(String name, long millis) {
+        return () -> {
+            System.out.println(Thread.currentThread().getName() + " starting " + name);
+            Thread.sleep(millis);
+            System.out.println(Thread.currentThread().getName() + " started " + name);
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        new StartupOrchestrator(4)
+                .add("config", sleep("config", 200))
+                .add("database", sleep("database", 1500), "config")
+                .add("cache", sleep("cache", 800), "config")
+                .add("metrics", sleep("metrics", 600))
+                .add("search-index", sleep("search-index", 1000), "database")
+                .add("application", sleep("application", 300), "database", "cache", "search-index", "metrics")
+                .start();
+        System.out.println("Application Started with all the services boot up");
+
+        try {
+            new StartupOrchestrator(2)
+                    .add("a", sleep("a", 10), "c")
+                    .add("b", sleep("b", 10), "a")
+                    .add("c", sleep("c", 10), "b")
+                    .start();
+        } catch (IllegalStateException e) {
+            System.out.println("Rejected: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package exercises;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.LongSupplier;
+
+/**
+ * SHA-256 of a file that is still being written.
+ * <p>
+ * Segments land out of order, so the digest can't be fed from the sockets. Instead this
+ * thread follows the contiguous watermark (everything before it is already written) and
+ * hashes [0, watermark) as it grows, reading back through the page cache. By the time the
+ * last segment lands, only the tail is left to hash.
+ */
+public class StreamingChecksum extends Thread {
+    private final FileChannel channel;
+    private final long length;
+    private final LongSupplier watermark;
+    private final MessageDigest digest;
+    private volatile String result;
+    private volatile IOException failure;
+
+    public StreamingChecksum(FileChannel channel, long length, LongSupplier watermark) {
+        super("Checksum");
+        this.channel = channel;
+        this.length = length;
+        this.watermark = watermark;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        long position = 0;
+        try {
+            while (position < length) {
+                long limit = watermark.getAsLong();
+                if (limit <= position) {
+                    Thread.sleep(10);
+                    continue;
+                }
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) throw new IOException("file shorter than watermark at " + position);
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+            }
+            result = HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new IOException("checksum interrupted", e);
+        }
+    }
+
+    /** Waits for the hash of the whole file; call once every segment has been written. */
+    public String await() throws IOException, InterruptedException {
+        join();
+        if (failure != null) throw failure;
+        return result;
+    }
+}
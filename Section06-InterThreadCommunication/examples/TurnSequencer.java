@@ -0,0 +1,165 @@
+package examples;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongToIntFunction;
+
+/**
+ * "Thread k runs on turn k" without notifyAll().
+ * <p>
+ * Practice6022, Practice602_Corrected, Practice604, AnswerEasy701, EvenOddPrinter and
+ * Practice603_Custom all share one monitor: every finished turn wakes all N threads, N-1 of
+ * which re-check the condition and go back to sleep. Here each party parks on its own slot and
+ * the thread finishing a turn asks {@code owner(turn)} who is next and unparks exactly that
+ * thread — one wakeup per turn whatever N is.
+ * <p>
+ * The owner function can express any turn rule, e.g. Practice603_Custom's divisibility rules,
+ * as long as it names exactly one party per turn.
+ */
+public class TurnSequencer {
+    // Spinning only helps when the finishing thread is running on another core
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+
+    private final LongToIntFunction owner;
+    private final long lastTurn;
+    private final AtomicReferenceArray<Thread> parked;
+    private volatile long turn;
+
+    /** Turns run from {@code firstTurn} to {@code lastTurn} inclusive. */
+    public TurnSequencer(int parties, long firstTurn, long lastTurn, LongToIntFunction owner) {
+        this.owner = owner;
+        this.turn = firstTurn;
+        this.lastTurn = lastTurn;
+        this.parked = new AtomicReferenceArray<>(parties);
+    }
+
+    /** Party k owns turns k, k+N, k+2N, ... like Practice6022. */
+    public static TurnSequencer roundRobin(int parties, long turns) {
+        return new TurnSequencer(parties, 0, turns - 1, t -> (int) (t % parties));
+    }
+
+    /**
+     * Blocks until it is {@code party}'s turn and returns the turn number,
+     * or -1 once the sequence is over.
+     */
+    public long awaitTurn(int party) throws InterruptedException {
+        long t;
+        // A short spin catches the common case where the previous party is about to finish
+        for (int i = 0; i < SPINS; i++) {
+            t = turn;
+            if (t > lastTurn) return -1;
+            if (owner.applyAsInt(t) == party) return t;
+            Thread.onSpinWait();
+        }
+        parked.set(party, Thread.currentThread());
+        try {
+            while (true) {
+                t = turn; // read after publishing ourselves, so a finisher can't miss us
+                if (t > lastTurn) return -1;
+                if (owner.applyAsInt(t) == party) return t;
+                LockSupport.park(this);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        } finally {
+            parked.set(party, null);
+        }
+    }
+
+    /** Ends the current turn; only the party that owns it may call this. */
+    public void finishTurn() {
+        long next = turn + 1; // single writer: only the owner advances the turn
+        turn = next;
+        if (next > lastTurn) {
+            for (int i = 0; i < parked.length(); i++) LockSupport.unpark(parked.get(i));
+            return;
+        }
+        LockSupport.unpark(parked.get(owner.applyAsInt(next)));
+    }
+
+    /** Baseline for the benchmark: the monitor + notifyAll pattern used across Section06. */
+    static final class MonitorTurns {
+        private long turn;
+        private final int parties;
+
+        MonitorTurns(int parties) {
+            this.parties = parties;
+        }
+
+        synchronized void run(int party, long turns) throws InterruptedException {
+            while (true) {
+                while (turn < turns && turn % parties != party) wait();
+                if (turn >= turns) return;
+                turn++;
+                notifyAll();
+            }
+        }
+    }
+
+    private static long benchmarkSequencer(int parties, long turns) throws InterruptedException {
+        TurnSequencer seq = roundRobin(parties, turns);
+        Thread[] threads = new Thread[parties];
+        for (int p = 0; p < parties; p++) {
+            int party = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    while (seq.awaitTurn(party) >= 0) seq.finishTurn();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        return time(threads);
+    }
+
+    private static long benchmarkMonitor(int parties, long turns) throws InterruptedException {
+        MonitorTurns monitor = new MonitorTurns(parties);
+        Thread[] threads = new Thread[parties];
+        for (int p = 0; p < parties; p++) {
+            int party = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    monitor.run(party, turns);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        return time(threads);
+    }
+
+    private static long time(Thread[] threads) throws InterruptedException {
+        long t0 = System.nanoTime();
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        return (System.nanoTime() - t0) / 1_000_000;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // Practice603_Custom's rules, with 6, 12, ... resolved to "Div3" instead of racing with "Even"
+        String[] names = {"OddNotDiv3", "Even", "Div3"};
+        TurnSequencer printer = new TurnSequencer(3, 1, 30, n -> n % 3 == 0 ? 2 : n % 2 == 0 ? 1 : 0);
+        Thread[] threads = new Thread[3];
+        for (int p = 0; p < 3; p++) {
+            int party = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    long n;
+                    while ((n = printer.awaitTurn(party)) >= 0) {
+                        System.out.println(Thread.currentThread().getName() + ": " + n);
+                        printer.finishTurn();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, names[p]);
+            threads[p].start();
+        }
+        for (Thread t : threads) t.join();
+
+        for (int parties : new int[]{2, 4, 16}) {
+            long turns = 100_000;
+            System.out.printf("%2d parties, %d turns: notifyAll %5d ms, sequencer %5d ms%n",
+                    parties, turns, benchmarkMonitor(parties, turns), benchmarkSequencer(parties, turns));
+        }
+    }
+}
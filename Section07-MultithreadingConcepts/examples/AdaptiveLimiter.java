@@ -0,0 +1,272 @@
+package examples;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limiter whose permit count follows the backend, instead of the hard-coded
+ * {@code new Semaphore(3)} of SemaphoreTest / PracticeEasy702.
+ * <p>
+ * Callers acquire a {@link Listener}, do their call, and report how it went. Each report feeds
+ * the measured round-trip time, the in-flight count and whether the call was dropped into a
+ * {@link Algorithm}, which proposes the next limit:
+ * <ul>
+ *   <li>{@link Aimd} — +1 per round trip while the limit is actually in use, ×0.9 on a drop,</li>
+ *   <li>{@link Vegas} — estimates the queue as limit × (1 − minRtt / rtt) and keeps it small,</li>
+ *   <li>{@link Gradient} — scales the limit by minRtt / rtt and adds √limit of headroom.</li>
+ * </ul>
+ * Limit changes are logged so the adaptation can be followed.
+ */
+public class AdaptiveLimiter {
+
+    /** Proposes a new limit from one completed call. */
+    public interface Algorithm {
+        int update(int limit, long rttNanos, int inflight, boolean dropped);
+    }
+
+    public static final class Aimd implements Algorithm {
+        private final int max;
+        private double estimate;
+
+        public Aimd(int max) {
+            this.max = max;
+        }
+
+        @Override
+        public synchronized int update(int limit, long rttNanos, int inflight, boolean dropped) {
+            if (estimate == 0) estimate = limit;
+            if (dropped) {
+                estimate = Math.max(1, estimate * 0.9);
+            } else if (inflight * 2 >= estimate) { // only grow when the current limit is the bottleneck
+                // +1/limit per call adds up to +1 per round trip, however many calls are in flight
+                estimate = Math.min(max, estimate + 1 / estimate);
+            }
+            return (int) estimate;
+        }
+    }
+
+    public static final class Vegas implements Algorithm {
+        private final int max;
+        private long minRtt = Long.MAX_VALUE;
+
+        public Vegas(int max) {
+            this.max = max;
+        }
+
+        @Override
+        public synchronized int update(int limit, long rttNanos, int inflight, boolean dropped) {
+            if (dropped) return Math.max(1, limit / 2);
+            minRtt = Math.min(minRtt, rttNanos);
+            double queue = limit * (1 - (double) minRtt / rttNanos);
+            int alpha = 3 * (int) Math.max(1, Math.log10(limit));
+            int beta = 6 * (int) Math.max(1, Math.log10(limit));
+            if (queue < alpha && inflight * 2 >= limit) return Math.min(max, limit + 1);
+            if (queue > beta) return Math.max(1, limit - 1);
+            return limit;
+        }
+    }
+
+    public static final class Gradient implements Algorithm {
+        private final int max;
+        private long minRtt = Long.MAX_VALUE; // "no load" latency
+        private int samples;
+        private double estimate;
+
+        public Gradient(int max) {
+            this.max = max;
+        }
+
+        @Override
+        public synchronized int update(int limit, long rttNanos, int inflight, boolean dropped) {
+            if (estimate == 0) estimate = limit;
+            if (dropped) {
+                estimate = Math.max(1, estimate * 0.5);
+                return (int) estimate;
+            }
+            // Forget the minimum now and then, so a backend that got slower for good is re-learned
+            if (++samples % 1000 == 0) minRtt = rttNanos;
+            minRtt = Math.min(minRtt, rttNanos);
+            double gradient = Math.max(0.5, Math.min(1.0, (double) minRtt / rttNanos));
+            double target = estimate * gradient + Math.sqrt(estimate);
+            // Don't grow while the existing limit isn't even being used
+            if (inflight * 2 < estimate) target = Math.min(target, estimate);
+            estimate = Math.max(1, Math.min(max, estimate * 0.8 + target * 0.2));
+            return (int) estimate;
+        }
+    }
+
+    /** Handle for one admitted call; exactly one of the outcome methods must be called. */
+    public final class Listener {
+        private final long start = System.nanoTime();
+        private final int inflightAtStart;
+
+        private Listener(int inflightAtStart) {
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        public void onSuccess() {
+            complete(start, inflightAtStart, false);
+        }
+
+        /** The call timed out or was rejected by the backend: a sign of overload. */
+        public void onDropped() {
+            complete(start, inflightAtStart, true);
+        }
+
+        /** The call says nothing about backend health (e.g. a validation error). */
+        public void onIgnore() {
+            release();
+        }
+    }
+
+    private final String name;
+    private final Algorithm algorithm;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitFreed = lock.newCondition();
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+    private volatile long lastDecrease;
+    private int lastLogged;
+    private long lastLogNanos;
+
+    public AdaptiveLimiter(String name, Algorithm algorithm, int initialLimit) {
+        this.name = name;
+        this.algorithm = algorithm;
+        this.limit = initialLimit;
+        this.lastLogged = initialLimit;
+    }
+
+    /** Non-blocking: null when the limit is reached, so the caller can shed load immediately. */
+    public Listener tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) return null;
+            if (inflight.compareAndSet(current, current + 1)) return new Listener(current + 1);
+        }
+    }
+
+    public Listener acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        Listener listener = tryAcquire();
+        if (listener != null) return listener;
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while ((listener = tryAcquire()) == null) {
+                if (nanos <= 0) return null;
+                nanos = permitFreed.awaitNanos(nanos);
+            }
+            return listener;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void complete(long start, int inflightAtStart, boolean dropped) {
+        long now = System.nanoTime();
+        // A burst of timeouts is one overload event: calls started before the last decrease
+        // already count against it, otherwise the limit collapses to 1 on a single spike
+        if (dropped && start < lastDecrease) {
+            release();
+            return;
+        }
+        synchronized (algorithm) {
+            int old = limit;
+            int updated = algorithm.update(old, now - start, inflightAtStart, dropped);
+            if (updated < old) lastDecrease = now;
+            limit = updated;
+            // Log drifts of 10% or more, at most every 100 ms, so the log shows the trend rather than every +1
+            if (Math.abs(updated - lastLogged) * 10 >= lastLogged && now - lastLogNanos >= 100_000_000L) {
+                System.out.printf("[%s] limit %d -> %d (rtt %.1f ms, inflight %d%s)%n", name, lastLogged, updated,
+                        (now - start) / 1e6, inflightAtStart, dropped ? ", dropped" : "");
+                lastLogged = updated;
+                lastLogNanos = now;
+            }
+        }
+        release();
+    }
+
+    private void release() {
+        inflight.decrementAndGet();
+        lock.lock();
+        try {
+            permitFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    /** Backend that serves ~20 calls in parallel; beyond that calls queue up and eventually time out. */
+    static final class Backend {
+        private final AtomicInteger active = new AtomicInteger();
+
+        boolean call() throws InterruptedException {
+            int n = active.incrementAndGet();
+            try {
+                long latency = 5 + Math.max(0, n - 20) * 2L + ThreadLocalRandom.current().nextInt(3);
+                if (latency > 60) {
+                    Thread.sleep(60);
+                    return false; // timeout
+                }
+                Thread.sleep(latency);
+                return true;
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    private static void run(String name, Algorithm algorithm, int initial) throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(name, algorithm, initial);
+        Backend backend = new Backend();
+        LongAdder ok = new LongAdder();
+        LongAdder dropped = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+
+        Thread[] clients = new Thread[64];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        Listener l = limiter.acquire(20, TimeUnit.MILLISECONDS);
+                        if (l == null) {
+                            rejected.increment();
+                            continue;
+                        }
+                        if (backend.call()) {
+                            ok.increment();
+                            l.onSuccess();
+                        } else {
+                            dropped.increment();
+                            l.onDropped();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            clients[i].start();
+        }
+        for (Thread c : clients) c.join();
+        System.out.printf("==> %-9s ok=%d/s dropped=%d rejected=%d final limit=%d%n",
+                name, ok.sum() / 3, dropped.sum(), rejected.sum(), limiter.limit());
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // A fixed limit of 3 that never moves — the Semaphore(3) baseline
+        run("Static(3)", (limit, rtt, inflight, dropped) -> limit, 3);
+        // AIMD only sees timeouts, so it settles just below the timeout; Vegas and Gradient watch
+        // latency and settle near the backend's real parallelism (~20) with no drops at all
+        run("AIMD", new Aimd(200), 3);
+        run("Vegas", new Vegas(200), 3);
+        run("Gradient", new Gradient(200), 3);
+    }
+}
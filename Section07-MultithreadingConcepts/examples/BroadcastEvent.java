@@ -0,0 +1,207 @@
+package examples;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The "something is ready" signal of SignalExample and CustomTest602, done properly.
+ * <p>
+ * SignalExample's {@code Semaphore(0)} wakes exactly one receiver and stays consumed; CustomTest602's
+ * {@code notify()} is lost if it happens before the {@code wait()}. This event is a gate instead:
+ * {@link #set()} opens it for every current and future waiter until {@link #reset()} closes it again,
+ * so the same object can signal round after round.
+ * <p>
+ * The whole state is one reference: either {@code SIGNALLED}, or the stack of waiters that arrived
+ * while the event was clear. Waiting on a set event is therefore a single volatile read; setting it
+ * swaps the stack out in one atomic step and wakes (or runs) everything that was on it.
+ */
+public class BroadcastEvent {
+
+    /** A parked thread or a callback, waiting for the next set(). */
+    private static final class Waiter {
+        final Thread thread;
+        final Runnable action;
+        Waiter next;
+        volatile boolean released;
+        volatile boolean cancelled;
+
+        Waiter(Thread thread, Runnable action) {
+            this.thread = thread;
+            this.action = action;
+        }
+    }
+
+    private static final Waiter SIGNALLED = new Waiter(null, null);
+    private static final Waiter EMPTY = null;
+
+    private final AtomicReference<Waiter> state = new AtomicReference<>(EMPTY);
+
+    public BroadcastEvent() {
+    }
+
+    public BroadcastEvent(boolean initiallySet) {
+        if (initiallySet) state.set(SIGNALLED);
+    }
+
+    public boolean isSet() {
+        return state.get() == SIGNALLED;
+    }
+
+    /** Opens the gate and releases everyone waiting; no effect if already set. */
+    public void set() {
+        Waiter head = state.getAndSet(SIGNALLED);
+        if (head == SIGNALLED) return;
+        RuntimeException failure = null;
+        for (Waiter w = head; w != null; w = w.next) {
+            if (w.action != null) {
+                try {
+                    w.action.run();
+                } catch (RuntimeException e) {
+                    failure = e; // a failing callback must not strand the waiters behind it
+                }
+            } else if (!w.cancelled) {
+                w.released = true;
+                LockSupport.unpark(w.thread);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /** Closes the gate again; returns false if it wasn't set. Later waiters block until the next set(). */
+    public boolean reset() {
+        return state.compareAndSet(SIGNALLED, EMPTY);
+    }
+
+    public void await() throws InterruptedException {
+        if (state.get() == SIGNALLED) return; // fast path
+        Waiter w = enqueue(new Waiter(Thread.currentThread(), null));
+        if (w == null) return;
+        while (!w.released) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                w.cancelled = true;
+                if (w.released) return; // set() won the race; the signal is not lost
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /** Returns false if the event was not set within the timeout. */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        if (state.get() == SIGNALLED) return true;
+        Waiter w = enqueue(new Waiter(Thread.currentThread(), null));
+        if (w == null) return true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!w.released) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0 || Thread.interrupted()) {
+                w.cancelled = true;
+                if (w.released) return true;
+                if (left > 0) throw new InterruptedException();
+                return false;
+            }
+            LockSupport.parkNanos(this, left);
+        }
+        return true;
+    }
+
+    /** Runs {@code action} on the thread calling the next set(), or right away if already set. */
+    public void onSet(Runnable action) {
+        if (state.get() == SIGNALLED || enqueue(new Waiter(null, action)) == null) action.run();
+    }
+
+    /** Runs {@code action} on {@code executor} once set, so slow callbacks don't hold up set(). */
+    public void onSet(Runnable action, Executor executor) {
+        onSet(() -> executor.execute(action));
+    }
+
+    /** A future completed by the next set() (or already complete if the event is set). */
+    public CompletableFuture<Void> toFuture() {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        onSet(() -> f.complete(null));
+        return f;
+    }
+
+    /** Pushes {@code w}, or returns null if the event got set meanwhile. */
+    private Waiter enqueue(Waiter w) {
+        while (true) {
+            Waiter head = state.get();
+            if (head == SIGNALLED) return null;
+            // Drop waiters that timed out or were interrupted, so repeated timed waits on an
+            // event that never fires don't pile up nodes
+            Waiter next = head;
+            while (next != null && next.cancelled) next = next.next;
+            w.next = next;
+            if (state.compareAndSet(head, w)) return w;
+        }
+    }
+
+    private static long benchmark(String name, Runnable awaitOnce) {
+        int n = 50_000_000;
+        for (int i = 0; i < n / 10; i++) awaitOnce.run(); // warmup
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) awaitOnce.run();
+        long ns = System.nanoTime() - t0;
+        System.out.printf("%-32s %.2f ns per await%n", name, ns / (double) n);
+        return ns;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // SignalExample with 5 receivers, three rounds, one event
+        BroadcastEvent ready = new BroadcastEvent();
+        for (int round = 1; round <= 3; round++) {
+            CountDownLatch done = new CountDownLatch(5);
+            for (int i = 1; i <= 5; i++) {
+                int id = i, r = round;
+                new Thread(() -> {
+                    try {
+                        ready.await();
+                        System.out.printf("Round %d: receiver %d got the signal%n", r, id);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            ready.toFuture().thenRun(() -> System.out.println("Async hook: event fired"));
+            Thread.sleep(200);
+            System.out.println("Sender: sending signal...");
+            ready.set();
+            done.await();
+            ready.reset();
+        }
+
+        System.out.println("Timed wait on a cleared event: " + ready.await(100, TimeUnit.MILLISECONDS));
+        ready.set();
+        System.out.println("Late subscriber, already set: " + ready.toFuture().isDone());
+
+        // The fast path: waiting on an event that is already set
+        CountDownLatch latch = new CountDownLatch(0);
+        Object monitor = new Object();
+        boolean[] flag = {true};
+        benchmark("BroadcastEvent.await (set)", () -> {
+            try {
+                ready.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        benchmark("CountDownLatch.await (0)", () -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        benchmark("synchronized flag check", () -> {
+            synchronized (monitor) {
+                if (!flag[0]) throw new IllegalStateException();
+            }
+        });
+    }
+}
@@ -0,0 +1,241 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AnswerEasy702's parking lot, split between tenants so one noisy caller can't take every spot.
+ * <p>
+ * Each tenant gets a guaranteed partition of the capacity. Whatever is not reserved forms a shared
+ * surplus that any tenant may borrow from, up to its own {@code maxBorrow}. When a tenant's partition
+ * and its share of the surplus are both used up the call is rejected at once instead of queueing —
+ * a spike in one tenant then shows up as rejections for that tenant only, not as latency for all.
+ * <p>
+ * Every acquire and release is a CAS on one or two counters; nothing blocks.
+ */
+public class Bulkhead {
+
+    private static final class Partition {
+        final String tenant;
+        final int reserved;
+        final int maxBorrow;
+        final AtomicInteger used = new AtomicInteger();
+        final AtomicInteger borrowed = new AtomicInteger();
+        final LongAdder admitted = new LongAdder();
+        final LongAdder admittedBorrowing = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        Partition(String tenant, int reserved, int maxBorrow) {
+            this.tenant = tenant;
+            this.reserved = reserved;
+            this.maxBorrow = maxBorrow;
+        }
+    }
+
+    /** One admitted call; closing it frees the slot it took. */
+    public final class Permit implements AutoCloseable {
+        private final Partition partition;
+        private final boolean fromSurplus;
+        private boolean closed;
+
+        private Permit(Partition partition, boolean fromSurplus) {
+            this.partition = partition;
+            this.fromSurplus = fromSurplus;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (fromSurplus) {
+                partition.borrowed.decrementAndGet();
+                surplusFree.incrementAndGet();
+            } else {
+                partition.used.decrementAndGet();
+            }
+        }
+    }
+
+    private final Map<String, Partition> partitions = new LinkedHashMap<>();
+    private final int capacity;
+    private final AtomicInteger surplusFree;
+
+    private Bulkhead(int capacity, Map<String, Partition> partitions) {
+        this.capacity = capacity;
+        this.partitions.putAll(partitions);
+        int reserved = partitions.values().stream().mapToInt(p -> p.reserved).sum();
+        this.surplusFree = new AtomicInteger(capacity - reserved);
+    }
+
+    public static Builder builder(int capacity) {
+        return new Builder(capacity);
+    }
+
+    public static final class Builder {
+        private final int capacity;
+        private final Map<String, Partition> partitions = new LinkedHashMap<>();
+        private int reserved;
+
+        private Builder(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /** {@code reserved} slots only this tenant can use, plus up to {@code maxBorrow} from the surplus. */
+        public Builder tenant(String name, int reserved, int maxBorrow) {
+            if (reserved < 0 || maxBorrow < 0) throw new IllegalArgumentException("Negative size for " + name);
+            if (partitions.containsKey(name)) throw new IllegalArgumentException("Duplicate tenant " + name);
+            reserved += this.reserved;
+            if (reserved > capacity) {
+                throw new IllegalArgumentException("Reservations exceed capacity " + capacity + " at tenant " + name);
+            }
+            partitions.put(name, new Partition(name, reserved - this.reserved, maxBorrow));
+            this.reserved = reserved;
+            return this;
+        }
+
+        public Bulkhead build() {
+            return new Bulkhead(capacity, partitions);
+        }
+    }
+
+    /** Returns a permit, or null right away when the tenant's partition and surplus share are exhausted. */
+    public Permit tryAcquire(String tenant) {
+        Partition p = partitions.get(tenant);
+        if (p == null) throw new IllegalArgumentException("Unknown tenant " + tenant);
+
+        if (incrementBelow(p.used, p.reserved)) {
+            p.admitted.increment();
+            return new Permit(p, false);
+        }
+        if (incrementBelow(p.borrowed, p.maxBorrow)) {
+            if (decrementAboveZero(surplusFree)) {
+                p.admitted.increment();
+                p.admittedBorrowing.increment();
+                return new Permit(p, true);
+            }
+            p.borrowed.decrementAndGet(); // surplus is empty after all
+        }
+        p.rejected.increment();
+        return null;
+    }
+
+    /** Runs {@code call} inside the tenant's bulkhead, or throws RejectedExecutionException if full. */
+    public <T> T execute(String tenant, Callable<T> call) throws Exception {
+        Permit permit = tryAcquire(tenant);
+        if (permit == null) throw new RejectedExecutionException("Bulkhead full for tenant " + tenant);
+        try (permit) {
+            return call.call();
+        }
+    }
+
+    private static boolean incrementBelow(AtomicInteger counter, int bound) {
+        while (true) {
+            int n = counter.get();
+            if (n >= bound) return false;
+            if (counter.compareAndSet(n, n + 1)) return true;
+        }
+    }
+
+    private static boolean decrementAboveZero(AtomicInteger counter) {
+        while (true) {
+            int n = counter.get();
+            if (n <= 0) return false;
+            if (counter.compareAndSet(n, n - 1)) return true;
+        }
+    }
+
+    public void printStats() {
+        System.out.println("========Bulkhead==========");
+        System.out.printf("capacity=%d, surplus free now=%d%n", capacity, surplusFree.get());
+        for (Partition p : partitions.values()) {
+            long total = p.admitted.sum() + p.rejected.sum();
+            System.out.printf("%-9s reserved=%2d maxBorrow=%2d admitted=%6d (borrowing %5d) rejected=%6d (%4.1f%%)%n",
+                    p.tenant, p.reserved, p.maxBorrow, p.admitted.sum(), p.admittedBorrowing.sum(), p.rejected.sum(),
+                    total == 0 ? 0 : p.rejected.sum() * 100.0 / total);
+        }
+    }
+
+    /** Decides whether one tenant's call may start; returns a release action, or null to reject. */
+    private interface Gate {
+        Runnable enter(String tenant);
+    }
+
+    /** {@code threads} callers per tenant hammer the gate for {@code seconds}, each call holding a slot 10 ms. */
+    private static void load(Gate gate, Map<String, Integer> threads, int seconds) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Map<String, LongAdder> ok = new LinkedHashMap<>();
+        Map<String, LongAdder> rejected = new LinkedHashMap<>();
+        List<Thread> all = new ArrayList<>();
+        threads.forEach((tenant, n) -> {
+            LongAdder o = ok.computeIfAbsent(tenant, t -> new LongAdder());
+            LongAdder r = rejected.computeIfAbsent(tenant, t -> new LongAdder());
+            for (int i = 0; i < n; i++) {
+                Thread t = new Thread(() -> {
+                    try {
+                        while (System.nanoTime() < end) {
+                            Runnable release = gate.enter(tenant);
+                            if (release == null) {
+                                r.increment();
+                                Thread.sleep(2); // client backs off briefly before retrying
+                                continue;
+                            }
+                            try {
+                                Thread.sleep(10);
+                                o.increment();
+                            } finally {
+                                release.run();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, tenant + "-" + i);
+                all.add(t);
+                t.start();
+            }
+        });
+        for (Thread t : all) t.join();
+        ok.forEach((tenant, o) -> System.out.printf("  %-9s ok=%5d/s rejected=%5d/s%n",
+                tenant, o.sum() / seconds, rejected.get(tenant).sum() / seconds));
+    }
+
+    public static void main(String[] args) throws Exception {
+        // "reports" spikes with 40 callers while "checkout" and "search" carry their normal 5 each
+        Map<String, Integer> threads = new LinkedHashMap<>();
+        threads.put("checkout", 5);
+        threads.put("search", 5);
+        threads.put("reports", 40);
+
+        System.out.println("Shared Semaphore(20), like AnswerEasy702:");
+        Semaphore shared = new Semaphore(20);
+        load(tenant -> shared.tryAcquire() ? shared::release : null, threads, 2);
+
+        Bulkhead bulkhead = Bulkhead.builder(20)
+                .tenant("checkout", 6, 4)
+                .tenant("search", 6, 4)
+                .tenant("reports", 2, 4)
+                .build();
+        System.out.println("Bulkhead (checkout 6+4, search 6+4, reports 2+4, surplus 6):");
+        load(tenant -> {
+            Permit p = bulkhead.tryAcquire(tenant);
+            return p == null ? null : p::close;
+        }, threads, 2);
+        bulkhead.printStats();
+
+        try {
+            for (int i = 0; i < 7; i++) bulkhead.tryAcquire("reports"); // leaked on purpose: 2 + 4 fit
+            bulkhead.execute("reports", () -> "never runs");
+        } catch (RejectedExecutionException e) {
+            System.out.println("execute(): " + e.getMessage());
+        }
+        System.out.println("execute(): " + bulkhead.execute("checkout", () -> "checkout still served"));
+    }
+}
@@ -0,0 +1,184 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+/**
+ * Multi-phase barrier pipeline on {@link Phaser} — what AnswerEasy701 and Practice6022 build
+ * out of chained semaphores, generalised to many workers and repeated rounds.
+ * <p>
+ * Each iteration runs the stages in order (e.g. compute, then exchange). Within a stage the
+ * data is cut into chunks and every registered worker claims chunks until none are left, then
+ * arrives; nobody starts the next stage until everybody has arrived. Because work is claimed
+ * rather than pre-assigned, workers can register or deregister between phases freely.
+ * <p>
+ * Workers added before {@link #start()} are registered straight away but their threads are only
+ * started by {@code start()}, so nobody runs ahead while the rest are still being registered.
+ * Workers added afterwards start at once and join from the current phase.
+ * <p>
+ * The first {@code tierSize} workers register on the root phaser; once it has that many parties,
+ * further workers go to child phasers of at most {@code tierSize} parties each. The shape follows
+ * however many workers are actually registered at the time, so each state word sees at most
+ * about {@code tierSize} arrivals instead of all of them.
+ */
+public class PhasedPipeline {
+
+    /** One stage of an iteration, applied to the chunk [from, to). */
+    @FunctionalInterface
+    public interface Stage {
+        void run(int from, int to, int iteration);
+    }
+
+    /** Decides after each full iteration whether to stop. */
+    @FunctionalInterface
+    public interface Termination {
+        boolean done(int iteration);
+    }
+
+    private final Phaser root;
+    private final List<Phaser> leaves = new ArrayList<>();
+    private final int tierSize;
+    private final List<Stage> stages;
+    private final int size;
+    private final int chunk;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final List<Thread> threads = new ArrayList<>();
+    private boolean started;
+
+    public PhasedPipeline(int size, int chunk, int tierSize, List<Stage> stages, Termination termination) {
+        this.size = size;
+        this.chunk = chunk;
+        this.tierSize = tierSize;
+        this.stages = stages;
+        this.root = new Phaser() {
+            @Override
+            protected boolean onAdvance(int phase, int registeredParties) {
+                // Runs once per phase, on the last thread to arrive, before anyone is released
+                nextChunk.set(0);
+                if (registeredParties == 0) return true;
+                boolean endOfIteration = (phase + 1) % stages.size() == 0;
+                return endOfIteration && termination.done(phase / stages.size());
+            }
+        };
+    }
+
+    /** The root while it has room, otherwise a leaf with room, growing the tree when all are full. */
+    private Phaser phaserForNewWorker() {
+        if (root.getRegisteredParties() < tierSize) return root;
+        for (Phaser leaf : leaves) {
+            if (leaf.getRegisteredParties() < tierSize) return leaf;
+        }
+        Phaser leaf = new Phaser(root);
+        leaves.add(leaf);
+        return leaf;
+    }
+
+    /**
+     * Adds a worker that runs until the pipeline terminates, or deregisters itself after
+     * {@code leaveAfterIteration} iterations (-1 = never). Safe to call while running.
+     */
+    public Thread addWorker(int leaveAfterIteration) {
+        synchronized (threads) {
+            // Choosing and registering together, so two callers can't both take the last free seat
+            Phaser phaser = phaserForNewWorker();
+            int startPhase = phaser.register();
+            Thread t = new Thread(() -> work(phaser, startPhase, leaveAfterIteration),
+                    "PhaseWorker-" + workerIds.getAndIncrement());
+            threads.add(t);
+            if (started) t.start();
+            return t;
+        }
+    }
+
+    /** Starts every worker added so far; all of them are registered before any runs a stage. */
+    public void start() {
+        synchronized (threads) {
+            if (started) throw new IllegalStateException("already started");
+            started = true;
+            for (Thread t : threads) t.start();
+        }
+    }
+
+    private void work(Phaser phaser, int phase, int leaveAfterIteration) {
+        while (phase >= 0) {
+            int iteration = phase / stages.size();
+            Stage stage = stages.get(phase % stages.size());
+            int c;
+            while ((c = nextChunk.getAndIncrement()) * chunk < size) {
+                int from = c * chunk;
+                stage.run(from, Math.min(size, from + chunk), iteration);
+            }
+            boolean lastStage = (phase + 1) % stages.size() == 0;
+            if (lastStage && iteration == leaveAfterIteration) {
+                phaser.arriveAndDeregister();
+                return;
+            }
+            phase = phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    public void awaitTermination() throws InterruptedException {
+        while (true) {
+            List<Thread> snapshot;
+            synchronized (threads) {
+                snapshot = new ArrayList<>(threads);
+            }
+            for (Thread t : snapshot) t.join();
+            synchronized (threads) {
+                if (threads.size() == snapshot.size()) return;
+            }
+        }
+    }
+
+    public int phase() {
+        return root.getPhase();
+    }
+
+    /** 1-D heat diffusion: compute next from current, then exchange them, until it settles. */
+    private static long diffuse(int workers, int tierSize, int iterations) throws InterruptedException {
+        int n = 1 << 20;
+        double[] current = new double[n];
+        double[] next = new double[n];
+        current[0] = current[n - 1] = 100.0;
+        next[0] = next[n - 1] = 100.0;
+        DoubleAccumulator maxDelta = new DoubleAccumulator(Math::max, 0);
+
+        Stage compute = (from, to, it) -> {
+            double local = 0;
+            for (int i = Math.max(1, from); i < Math.min(n - 1, to); i++) {
+                next[i] = (current[i - 1] + current[i] + current[i + 1]) / 3.0;
+                local = Math.max(local, Math.abs(next[i] - current[i]));
+            }
+            maxDelta.accumulate(local);
+        };
+        Stage exchange = (from, to, it) -> System.arraycopy(next, from, current, from, to - from);
+
+        PhasedPipeline pipeline = new PhasedPipeline(n, 8 * 1024, tierSize, List.of(compute, exchange), it -> {
+            double delta = maxDelta.getThenReset();
+            return it + 1 >= iterations || delta < 1e-9;
+        });
+
+        long t0 = System.nanoTime();
+        for (int w = 0; w < workers; w++) {
+            // A quarter of the workers leave half way through; the rest pick up their chunks
+            pipeline.addWorker(w % 4 == 0 ? iterations / 2 : -1);
+        }
+        pipeline.start();
+        pipeline.awaitTermination();
+        return (System.nanoTime() - t0) / 1_000_000;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int iterations = 200;
+        for (int workers : new int[]{8, 64, 128}) {
+            long flat = diffuse(workers, Integer.MAX_VALUE, iterations);
+            long tiered = diffuse(workers, 16, iterations);
+            System.out.printf("%3d workers, %d iterations: flat phaser %d ms, tiered phaser %d ms%n",
+                    workers, iterations, flat, tiered);
+        }
+    }
+}
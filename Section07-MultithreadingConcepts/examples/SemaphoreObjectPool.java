@@ -0,0 +1,263 @@
+package examples;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded object pool built on the "3 parking spots" Semaphore from SemaphoreTest /
+ * AnswerEasy702 — except the spots now hand out real objects (connections, buffers, ...).
+ * <p>
+ * The Semaphore only counts: a permit means "you may hold one object". Which object you get:
+ * <ol>
+ *   <li>the one this thread returned last, if it is still idle (one CAS on that entry, no scan of the shared list),</li>
+ *   <li>otherwise any idle object from the shared list,</li>
+ *   <li>otherwise a newly created one — objects are only made when needed.</li>
+ * </ol>
+ * Every borrow, this fast path included, still takes a permit from the shared fair Semaphore:
+ * that permit is what bounds the pool, and fairness means even an uncontended borrow goes through
+ * the Semaphore's queue check. The thread-local hint only saves the search for an object.
+ * <p>
+ * Objects failing validation on borrow are destroyed and replaced; a daemon evicts objects idle
+ * for longer than {@code maxIdle}. Wait time, timeouts and utilisation are tracked throughout.
+ */
+public class SemaphoreObjectPool<T> implements AutoCloseable {
+    private static final int IDLE = 0;
+    private static final int IN_USE = 1;
+    private static final int REMOVED = 2;
+
+    private static final class Entry<T> {
+        final T object;
+        final AtomicInteger state = new AtomicInteger(IN_USE);
+        volatile long lastUsedNanos = System.nanoTime();
+
+        Entry(T object) {
+            this.object = object;
+        }
+    }
+
+    /** A borrowed object; closing the lease returns it. */
+    public final class Lease implements AutoCloseable {
+        private final Entry<T> entry;
+        private boolean closed;
+
+        private Lease(Entry<T> entry) {
+            this.entry = entry;
+        }
+
+        public T get() {
+            return entry.object;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            giveBack(entry);
+        }
+    }
+
+    private final int capacity;
+    private final Semaphore permits;
+    private final List<Entry<T>> entries = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Entry<T>> lastReturned = new ThreadLocal<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final Supplier<T> factory;
+    private final Predicate<T> validator;
+    private final Consumer<T> destroyer;
+    private final long maxIdleNanos;
+    private final ScheduledExecutorService evictor;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder threadLocalHits = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder busyNanos = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    public SemaphoreObjectPool(int capacity, Supplier<T> factory, Predicate<T> validator, Consumer<T> destroyer,
+                               long maxIdle, TimeUnit unit) {
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity, true); // fair: waiters are served in arrival order
+        this.factory = factory;
+        this.validator = validator;
+        this.destroyer = destroyer;
+        this.maxIdleNanos = unit.toNanos(maxIdle);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PoolEvictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1, unit.toMillis(maxIdle) / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Lease borrow(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        long t0 = System.nanoTime();
+        if (!permits.tryAcquire(timeout, unit)) {
+            timeouts.increment();
+            throw new TimeoutException("No object available within " + timeout + " " + unit);
+        }
+        long waited = System.nanoTime() - t0;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        borrows.increment();
+        try {
+            Entry<T> entry = take();
+            entry.lastUsedNanos = System.nanoTime();
+            return new Lease(entry);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** Called with a permit held, so an idle entry exists or there is room to create one. */
+    private Entry<T> take() {
+        Entry<T> mine = lastReturned.get();
+        if (mine != null && mine.state.compareAndSet(IDLE, IN_USE)) {
+            if (validate(mine)) {
+                threadLocalHits.increment();
+                return mine;
+            }
+        }
+        while (true) {
+            for (Entry<T> e : entries) {
+                if (e.state.compareAndSet(IDLE, IN_USE) && validate(e)) return e;
+            }
+            int n = total.get();
+            if (n < capacity && total.compareAndSet(n, n + 1)) {
+                T object;
+                try {
+                    object = factory.get();
+                } catch (RuntimeException | Error ex) {
+                    total.decrementAndGet(); // give the slot back; borrow() releases the permit
+                    throw ex;
+                }
+                Entry<T> e = new Entry<>(object);
+                created.increment();
+                entries.add(e);
+                return e;
+            }
+            Thread.onSpinWait(); // an entry is being returned right now
+        }
+    }
+
+    /** Keeps {@code e} if valid; otherwise destroys it and frees its slot for a fresh one. */
+    private boolean validate(Entry<T> e) {
+        boolean valid;
+        try {
+            valid = validator.test(e.object);
+        } catch (RuntimeException ex) {
+            valid = false; // a validator that can't tell counts as a failed check
+        }
+        if (valid) return true;
+        remove(e);
+        return false;
+    }
+
+    private void remove(Entry<T> e) {
+        e.state.set(REMOVED);
+        entries.remove(e);
+        total.decrementAndGet();
+        destroyed.increment();
+        destroyer.accept(e.object);
+    }
+
+    private void giveBack(Entry<T> e) {
+        long now = System.nanoTime();
+        busyNanos.add(now - e.lastUsedNanos);
+        e.lastUsedNanos = now;
+        e.state.set(IDLE);
+        lastReturned.set(e);
+        permits.release();
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (Entry<T> e : entries) {
+            // The CAS makes sure a borrower can't take the entry while it is being evicted
+            if (now - e.lastUsedNanos > maxIdleNanos && e.state.compareAndSet(IDLE, REMOVED)) remove(e);
+        }
+    }
+
+    public void printMetrics() {
+        long n = Math.max(1, borrows.sum());
+        double elapsed = System.nanoTime() - startNanos;
+        System.out.println("========Pool Metrics==========");
+        System.out.printf("borrows=%d (thread-local hits %d%%), timeouts=%d, created=%d, destroyed=%d, live=%d%n",
+                borrows.sum(), threadLocalHits.sum() * 100 / n, timeouts.sum(), created.sum(), destroyed.sum(), total.get());
+        System.out.printf("wait avg=%.2f ms max=%.2f ms, utilisation=%.0f%% of %d objects, waiting now=%d%n",
+                waitNanos.sum() / 1e6 / n, maxWaitNanos.get() / 1e6,
+                busyNanos.sum() * 100 / (elapsed * capacity), capacity, permits.getQueueLength());
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        for (Entry<T> e : entries) {
+            if (e.state.compareAndSet(IDLE, IN_USE)) remove(e);
+        }
+    }
+
+    /** Stand-in for a DB connection that occasionally goes stale. */
+    static final class Connection {
+        private static final AtomicInteger ids = new AtomicInteger();
+        final int id = ids.incrementAndGet();
+        volatile boolean broken;
+
+        @Override
+        public String toString() {
+            return "Conn-" + id;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        try (SemaphoreObjectPool<Connection> pool = new SemaphoreObjectPool<>(3, Connection::new,
+                c -> !c.broken, c -> System.out.println("Closing " + c), 500, TimeUnit.MILLISECONDS)) {
+
+            // 10 cars, 3 spots — but each car now gets a concrete connection
+            Thread[] cars = new Thread[10];
+            for (int i = 0; i < cars.length; i++) {
+                int carId = i + 1;
+                cars[i] = new Thread(() -> {
+                    try (SemaphoreObjectPool<Connection>.Lease lease = pool.borrow(1500, TimeUnit.MILLISECONDS)) {
+                        System.out.printf("Car %d got %s%n", carId, lease.get());
+                        Thread.sleep(200 + ThreadLocalRandom.current().nextInt(600));
+                        if (carId % 4 == 0) lease.get().broken = true; // validation will catch it
+                    } catch (TimeoutException e) {
+                        System.out.printf("Car %d gave up: %s%n", carId, e.getMessage());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, "Car-" + carId);
+                cars[i].start();
+            }
+            for (Thread car : cars) car.join();
+            pool.printMetrics();
+
+            Thread.sleep(1000); // idle connections get evicted
+            System.out.println("After idle eviction: " + pool.total.get() + " live connections");
+
+            // Hot path: one thread borrowing and returning in a loop stays on its own connection
+            long t0 = System.nanoTime();
+            for (int i = 0; i < 1_000_000; i++) {
+                try (SemaphoreObjectPool<Connection>.Lease lease = pool.borrow(1, TimeUnit.SECONDS)) {
+                    lease.get();
+                } catch (TimeoutException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            System.out.printf("Uncontended borrow+return: %d ns%n", (System.nanoTime() - t0) / 1_000_000);
+            pool.printMetrics();
+        }
+    }
+}
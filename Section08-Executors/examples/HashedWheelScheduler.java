@@ -0,0 +1,287 @@
+package examples;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer built on a hierarchical hashed timing wheel, as a replacement for the sleep() loops
+ * in ManualScheduler / Practice503 and for a heap-based ScheduledThreadPoolExecutor when
+ * there are hundreds of thousands of short-lived timeouts.
+ * <p>
+ * Four wheels of 256 buckets each; wheel {@code l} holds timeouts whose deadline first differs
+ * from the current tick in byte {@code l}. When the lower wheels wrap, the matching bucket of
+ * the next wheel is cascaded down. Scheduling and cancelling are O(1): callers only enqueue
+ * onto lock-free queues, and the single wheel thread does all linking and unlinking of the
+ * doubly-linked buckets. Expired tasks run on the supplied executor, never on the wheel thread.
+ * <p>
+ * Timing resolution is one tick, so deadlines fire up to {@code tickMillis} late — the usual
+ * price of a wheel and irrelevant for request timeouts.
+ */
+public class HashedWheelScheduler implements AutoCloseable {
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /** Handle returned by every schedule method. */
+    public final class Timeout {
+        final Runnable task;
+        final long periodTicks; // > 0 fixed rate, < 0 fixed delay, 0 one-shot
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        long deadlineTick;
+        Timeout prev;
+        Timeout next;
+        Bucket bucket;
+
+        Timeout(Runnable task, long deadlineTick, long periodTicks) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+            this.periodTicks = periodTicks;
+        }
+
+        /** O(1): flips the state and lets the wheel thread unlink it on its next tick. */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+            cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+
+    private final class Bucket {
+        Timeout head;
+
+        void add(Timeout t) {
+            t.bucket = this;
+            t.prev = null;
+            t.next = head;
+            if (head != null) head.prev = t;
+            head = t;
+        }
+
+        void remove(Timeout t) {
+            if (t.prev != null) t.prev.next = t.next;
+            else head = t.next;
+            if (t.next != null) t.next.prev = t.prev;
+            t.prev = t.next = null;
+            t.bucket = null;
+        }
+
+        /** Detaches the whole list so it can be re-placed or expired. */
+        Timeout drain() {
+            Timeout list = head;
+            head = null;
+            return list;
+        }
+    }
+
+    private final Bucket[][] wheels = new Bucket[LEVELS][SLOTS];
+    private final Queue<Timeout> submitted = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final Executor executor;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long currentTick;
+
+    public HashedWheelScheduler(long tickMillis, Executor executor) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.executor = executor;
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) wheel[i] = new Bucket();
+        }
+        this.worker = new Thread(this::loop, "HashedWheelTimer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return submit(new Timeout(task, tickFor(unit.toNanos(delay)), 0));
+    }
+
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return submit(new Timeout(task, tickFor(unit.toNanos(initialDelay)), ticks(unit.toNanos(period))));
+    }
+
+    public Timeout scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        return submit(new Timeout(task, tickFor(unit.toNanos(initialDelay)), -ticks(unit.toNanos(delay))));
+    }
+
+    private Timeout submit(Timeout t) {
+        if (!running) throw new RejectedExecutionException("scheduler closed");
+        submitted.add(t);
+        return t;
+    }
+
+    private long ticks(long nanos) {
+        return Math.max(1, (nanos + tickNanos - 1) / tickNanos);
+    }
+
+    private long tickFor(long delayNanos) {
+        return (System.nanoTime() - startNanos + delayNanos + tickNanos - 1) / tickNanos;
+    }
+
+    private void loop() {
+        while (running) {
+            long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+            while (currentTick < nowTick) {
+                currentTick++;
+                drainQueues();
+                advance();
+            }
+            drainQueues();
+            long nextTickAt = startNanos + (currentTick + 1) * tickNanos;
+            LockSupport.parkNanos(nextTickAt - System.nanoTime());
+        }
+    }
+
+    private void drainQueues() {
+        Timeout t;
+        while ((t = cancelled.poll()) != null) {
+            if (t.bucket != null) t.bucket.remove(t);
+        }
+        while ((t = submitted.poll()) != null) {
+            if (t.state.get() == PENDING) place(t);
+        }
+    }
+
+    /** Puts {@code t} on the wheel whose byte first differs between its deadline and now. */
+    private void place(Timeout t) {
+        if (t.deadlineTick <= currentTick) {
+            expire(t);
+            return;
+        }
+        long diff = t.deadlineTick ^ currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && (diff >>> (BITS * (level + 1))) != 0) level++;
+        wheels[level][(int) (t.deadlineTick >>> (BITS * level)) & MASK].add(t);
+    }
+
+    private void advance() {
+        // Cascade from the highest wheel whose lower wheels have all just wrapped
+        int top = 0;
+        while (top < LEVELS - 1 && (currentTick & ((1L << (BITS * (top + 1))) - 1)) == 0) top++;
+        for (int level = top; level >= 1; level--) {
+            Timeout list = wheels[level][(int) (currentTick >>> (BITS * level)) & MASK].drain();
+            while (list != null) {
+                Timeout next = list.next;
+                list.prev = list.next = null;
+                list.bucket = null;
+                place(list);
+                list = next;
+            }
+        }
+        Timeout list = wheels[0][(int) currentTick & MASK].drain();
+        while (list != null) {
+            Timeout next = list.next;
+            list.prev = list.next = null;
+            list.bucket = null;
+            expire(list);
+            list = next;
+        }
+    }
+
+    private void expire(Timeout t) {
+        if (t.state.get() != PENDING) return;
+        if (t.periodTicks > 0) {
+            // Fixed rate: the next deadline follows the previous one, not when the task ran, but is
+            // only placed once this run is over. Like ScheduledThreadPoolExecutor, runs never
+            // overlap: an overrunning task catches up with back-to-back runs instead.
+            dispatch(t, () -> {
+                if (runPeriodic(t) && t.state.get() == PENDING) {
+                    t.deadlineTick += t.periodTicks;
+                    submitted.add(t);
+                }
+            });
+        } else if (t.periodTicks < 0) {
+            dispatch(t, () -> {
+                if (runPeriodic(t) && t.state.get() == PENDING) {
+                    t.deadlineTick = tickFor(0) - t.periodTicks;
+                    submitted.add(t);
+                }
+            });
+        } else if (t.state.compareAndSet(PENDING, EXPIRED)) {
+            dispatch(t, t.task);
+        }
+    }
+
+    /** A rejected run cancels only its own timeout; letting it escape would stop the wheel thread. */
+    private void dispatch(Timeout t, Runnable run) {
+        try {
+            executor.execute(run);
+        } catch (RejectedExecutionException e) {
+            t.state.set(CANCELLED);
+            System.err.println("Executor rejected a timeout, which was cancelled: " + e);
+        }
+    }
+
+    /** Like ScheduledThreadPoolExecutor, a periodic task that throws is not run again. */
+    private boolean runPeriodic(Timeout t) {
+        try {
+            t.task.run();
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Periodic task failed and was cancelled: " + e);
+            t.cancel();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    public static void main(String[] args) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try (HashedWheelScheduler wheel = new HashedWheelScheduler(10, pool)) {
+            // Periodic "supervisor" like ManualScheduler, without a sleep() loop
+            AtomicInteger beats = new AtomicInteger();
+            Timeout heartbeat = wheel.scheduleAtFixedRate(() ->
+                    System.out.println("Heartbeat #" + beats.incrementAndGet() + " on " + Thread.currentThread().getName()),
+                    0, 200, TimeUnit.MILLISECONDS);
+            Timeout poller = wheel.scheduleWithFixedDelay(() -> System.out.println("Poll (fixed delay)"),
+                    100, 300, TimeUnit.MILLISECONDS);
+            Thread.sleep(1000);
+            heartbeat.cancel();
+            poller.cancel();
+
+            // Request-timeout pattern: register many, cancel almost all before they fire
+            int n = 500_000;
+            AtomicInteger fired = new AtomicInteger();
+            Runnable onTimeout = fired::incrementAndGet;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            long t0 = System.nanoTime();
+            Timeout[] timeouts = new Timeout[n];
+            for (int i = 0; i < n; i++) timeouts[i] = wheel.schedule(onTimeout, 1000 + random.nextInt(9000), TimeUnit.MILLISECONDS);
+            for (int i = 0; i < n; i++) if (i % 10 != 0) timeouts[i].cancel();
+            long wheelNs = (System.nanoTime() - t0) / n;
+
+            ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1);
+            stpe.setRemoveOnCancelPolicy(true);
+            t0 = System.nanoTime();
+            ScheduledFuture<?>[] futures = new ScheduledFuture<?>[n];
+            for (int i = 0; i < n; i++) futures[i] = stpe.schedule(onTimeout, 1000 + random.nextInt(9000), TimeUnit.MILLISECONDS);
+            for (int i = 0; i < n; i++) if (i % 10 != 0) futures[i].cancel(false);
+            long heapNs = (System.nanoTime() - t0) / n;
+            stpe.shutdownNow();
+
+            System.out.printf("schedule+cancel per timeout: wheel %d ns, ScheduledThreadPoolExecutor %d ns%n",
+                    wheelNs, heapNs);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
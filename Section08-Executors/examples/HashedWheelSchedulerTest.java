@@ -0,0 +1,83 @@
+package examples;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HashedWheelSchedulerTest {
+
+    /** Runs {@code body} and records how many copies of it were running at once. */
+    static class OverlapProbe implements Runnable {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger runs = new AtomicInteger();
+        final long workMillis;
+
+        OverlapProbe(long workMillis) {
+            this.workMillis = workMillis;
+        }
+
+        @Override
+        public void run() {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(workMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+                runs.incrementAndGet();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // Plenty of pool threads, so any overlap the scheduler allows would actually happen
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        OverlapProbe fixedRate = new OverlapProbe(50);
+        OverlapProbe fixedDelay = new OverlapProbe(50);
+        try (HashedWheelScheduler wheel = new HashedWheelScheduler(1, pool)) {
+            // A 50 ms task every 10 ms: the period is far shorter than the task
+            HashedWheelScheduler.Timeout rate = wheel.scheduleAtFixedRate(fixedRate, 0, 10, TimeUnit.MILLISECONDS);
+            HashedWheelScheduler.Timeout delay = wheel.scheduleWithFixedDelay(fixedDelay, 0, 10, TimeUnit.MILLISECONDS);
+            Thread.sleep(1000);
+            rate.cancel();
+            delay.cancel();
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        System.out.println("Fixed rate:  " + fixedRate.runs.get() + " runs, max concurrent " + fixedRate.maxRunning.get());
+        System.out.println("Fixed delay: " + fixedDelay.runs.get() + " runs, max concurrent " + fixedDelay.maxRunning.get());
+        check(fixedRate.maxRunning.get() == 1, "fixed-rate runs overlapped");
+        check(fixedDelay.maxRunning.get() == 1, "fixed-delay runs overlapped");
+        // Back to back for a second with 50 ms of work each: about 20, allow for a slow machine
+        check(fixedRate.runs.get() >= 10, "fixed-rate task fell behind instead of catching up");
+
+        // An executor that refuses the first task: only that timeout may be lost, not the wheel
+        AtomicInteger offered = new AtomicInteger();
+        Executor flaky = r -> {
+            if (offered.getAndIncrement() == 0) throw new RejectedExecutionException("saturated");
+            r.run();
+        };
+        CountDownLatch later = new CountDownLatch(1);
+        try (HashedWheelScheduler wheel = new HashedWheelScheduler(1, flaky)) {
+            HashedWheelScheduler.Timeout rejected = wheel.schedule(() -> { }, 10, TimeUnit.MILLISECONDS);
+            wheel.schedule(later::countDown, 100, TimeUnit.MILLISECONDS);
+            check(later.await(2, TimeUnit.SECONDS), "wheel stopped ticking after a rejected task");
+            check(rejected.isCancelled(), "rejected timeout was not marked cancelled");
+        }
+        System.out.println("Rejected task: wheel kept ticking, timeout cancelled");
+        System.out.println("All checks passed");
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,342 @@
+package examples;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locking several resources at once without deadlock — the dining philosophers' two forks, or
+ * two to four account rows in one transfer.
+ * <p>
+ * Three classic answers, behind one {@link MultiLock} interface:
+ * <ul>
+ *   <li>{@link Ordered} — always lock in ascending id order, so no cycle of waiters can form;</li>
+ *   <li>{@link TryAllBackoff} — block on one lock while holding nothing, try the others, and on
+ *       failure give everything back and retry after a random backoff;</li>
+ *   <li>{@link Waiter} — the "waiter" from the textbook: one arbiter hands out whole sets. Each
+ *       resource keeps a FIFO of requests and a request runs when it heads all of its queues, so
+ *       grants follow arrival order and nobody starves.</li>
+ * </ul>
+ * {@link #simulate} runs philosophers (or random multi-row transactions) against a strategy and
+ * reports throughput, the worst wait any party saw, and how often it had to wait or retry.
+ */
+public class ResourceArbiter {
+
+    /** Acquires and releases a set of resources, identified by index, as one unit. */
+    public interface MultiLock {
+        void lock(int[] ids) throws InterruptedException;
+
+        void unlock(int[] ids);
+
+        /** Acquisitions that could not proceed straight away (blocked, rolled back or queued). */
+        long contentionEvents();
+
+        String name();
+    }
+
+    public static final class Ordered implements MultiLock {
+        private final ReentrantLock[] locks;
+        private final LongAdder contended = new LongAdder();
+
+        public Ordered(int resources) {
+            locks = new ReentrantLock[resources];
+            for (int i = 0; i < resources; i++) locks[i] = new ReentrantLock();
+        }
+
+        @Override
+        public void lock(int[] ids) throws InterruptedException {
+            int[] sorted = ids.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length; i++) {
+                ReentrantLock l = locks[sorted[i]];
+                if (l.tryLock()) continue;
+                contended.increment();
+                try {
+                    l.lockInterruptibly();
+                } catch (InterruptedException e) {
+                    for (int j = i - 1; j >= 0; j--) locks[sorted[j]].unlock();
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void unlock(int[] ids) {
+            for (int id : ids) locks[id].unlock();
+        }
+
+        @Override
+        public long contentionEvents() {
+            return contended.sum();
+        }
+
+        @Override
+        public String name() {
+            return "ordered";
+        }
+    }
+
+    public static final class TryAllBackoff implements MultiLock {
+        private final ReentrantLock[] locks;
+        private final LongAdder rollbacks = new LongAdder();
+
+        public TryAllBackoff(int resources) {
+            locks = new ReentrantLock[resources];
+            for (int i = 0; i < resources; i++) locks[i] = new ReentrantLock();
+        }
+
+        @Override
+        public void lock(int[] ids) throws InterruptedException {
+            int first = 0; // index in ids of the lock we block on
+            for (int attempt = 0; ; attempt++) {
+                // Blocking is safe here: we hold nothing, so we can't be part of a cycle
+                locks[ids[first]].lockInterruptibly();
+                int failed = -1;
+                for (int i = 0; i < ids.length; i++) {
+                    if (i != first && !locks[ids[i]].tryLock()) {
+                        failed = i;
+                        break;
+                    }
+                }
+                if (failed < 0) return;
+
+                unlockAcquired(ids, first, failed);
+                rollbacks.increment();
+                first = failed; // next round, wait for the one that was busy
+                long cap = TimeUnit.MICROSECONDS.toNanos(Math.min(1000, 1L << Math.min(attempt, 10)));
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(cap + 1));
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        }
+
+        /** Releases {@code ids[first]} and every tryLock'ed id before {@code failed}. */
+        private void unlockAcquired(int[] ids, int first, int failed) {
+            locks[ids[first]].unlock();
+            for (int i = 0; i < failed; i++) {
+                if (i != first) locks[ids[i]].unlock();
+            }
+        }
+
+        @Override
+        public void unlock(int[] ids) {
+            for (int id : ids) locks[id].unlock();
+        }
+
+        @Override
+        public long contentionEvents() {
+            return rollbacks.sum();
+        }
+
+        @Override
+        public String name() {
+            return "try-all+backoff";
+        }
+    }
+
+    public static final class Waiter implements MultiLock {
+        private static final class Request {
+            final int[] ids;
+            final Thread thread = Thread.currentThread();
+            volatile boolean granted;
+
+            Request(int[] ids) {
+                this.ids = ids;
+            }
+        }
+
+        private final ReentrantLock arbiter = new ReentrantLock();
+        private final ArrayDeque<Request>[] queues; // head = holder, or the next in line
+        private final Request[] holders; // current holder per resource, for unlock()
+        private final LongAdder queued = new LongAdder();
+
+        @SuppressWarnings("unchecked")
+        public Waiter(int resources) {
+            queues = (ArrayDeque<Request>[]) new ArrayDeque<?>[resources];
+            for (int i = 0; i < resources; i++) queues[i] = new ArrayDeque<>(2);
+            holders = new Request[resources];
+        }
+
+        @Override
+        public void lock(int[] ids) throws InterruptedException {
+            // A repeated id would queue the request twice in one queue, and it could never head both
+            // places, so it would wait forever
+            Request r = new Request(Arrays.stream(ids).distinct().toArray());
+            arbiter.lock();
+            try {
+                // Joining every queue under one lock keeps arrival order consistent across
+                // queues, so the oldest request always heads all of its queues: no deadlock
+                for (int id : r.ids) queues[id].addLast(r);
+                if (headsAll(r)) {
+                    grant(r);
+                    return;
+                }
+            } finally {
+                arbiter.unlock();
+            }
+            queued.increment();
+            while (!r.granted) {
+                LockSupport.park(this);
+                if (Thread.interrupted() && !r.granted) {
+                    abandon(r);
+                    throw new InterruptedException();
+                }
+            }
+        }
+
+        private void abandon(Request r) {
+            arbiter.lock();
+            try {
+                if (r.granted) {
+                    release(r); // granted at the last moment; hand it straight on
+                } else {
+                    for (int id : r.ids) queues[id].remove(r);
+                    for (int id : r.ids) wakeHead(id);
+                }
+            } finally {
+                arbiter.unlock();
+            }
+        }
+
+        @Override
+        public void unlock(int[] ids) {
+            arbiter.lock();
+            try {
+                release(holders[ids[0]]);
+            } finally {
+                arbiter.unlock();
+            }
+        }
+
+        private void release(Request r) {
+            for (int id : r.ids) {
+                queues[id].pollFirst();
+                holders[id] = null;
+            }
+            for (int id : r.ids) wakeHead(id);
+        }
+
+        private void wakeHead(int id) {
+            Request next = queues[id].peekFirst();
+            if (next != null && !next.granted && headsAll(next)) {
+                grant(next);
+                LockSupport.unpark(next.thread);
+            }
+        }
+
+        private boolean headsAll(Request r) {
+            for (int id : r.ids) {
+                if (queues[id].peekFirst() != r) return false;
+            }
+            return true;
+        }
+
+        private void grant(Request r) {
+            for (int id : r.ids) holders[id] = r;
+            r.granted = true;
+        }
+
+        @Override
+        public long contentionEvents() {
+            return queued.sum();
+        }
+
+        @Override
+        public String name() {
+            return "waiter";
+        }
+    }
+
+    /** Which resources party {@code p} needs for its next round. */
+    @FunctionalInterface
+    public interface Workload {
+        int[] next(int party, ThreadLocalRandom rnd);
+    }
+
+    /** Philosopher p needs forks p and p+1 around a table of {@code n}. */
+    public static Workload philosophers(int n) {
+        return (p, rnd) -> new int[]{p, (p + 1) % n};
+    }
+
+    /** A transaction touching 2 to 4 distinct rows out of {@code rows}. */
+    public static Workload transfers(int rows) {
+        return (p, rnd) -> rnd.ints(0, rows).distinct().limit(2 + rnd.nextInt(3)).toArray();
+    }
+
+    public static void simulate(MultiLock lock, int parties, Workload workload, long thinkMicros, long eatMicros,
+                                long millis) throws InterruptedException {
+        long[] meals = new long[parties];
+        long[] maxWait = new long[parties];
+        LongAdder waitNanos = new LongAdder();
+        Thread[] threads = new Thread[parties];
+        long[] stopAt = new long[1];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < parties; p++) {
+            int party = p;
+            threads[p] = new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                try {
+                    start.await(); // starting 10,000 threads takes a while; don't let early ones run alone
+                    while (System.nanoTime() < stopAt[0]) {
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rnd.nextLong(thinkMicros + 1)));
+                        int[] ids = workload.next(party, rnd);
+                        long t0 = System.nanoTime();
+                        lock.lock(ids);
+                        long waited = System.nanoTime() - t0;
+                        try {
+                            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(eatMicros));
+                        } finally {
+                            lock.unlock(ids);
+                        }
+                        waitNanos.add(waited);
+                        maxWait[party] = Math.max(maxWait[party], waited);
+                        meals[party]++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Party-" + p);
+            threads[p].setDaemon(true);
+        }
+        for (Thread t : threads) t.start();
+        long t0 = System.nanoTime();
+        stopAt[0] = t0 + TimeUnit.MILLISECONDS.toNanos(millis);
+        start.countDown();
+        for (Thread t : threads) t.join();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        long total = 0, worst = 0;
+        double sumSq = 0;
+        for (int p = 0; p < parties; p++) {
+            total += meals[p];
+            sumSq += (double) meals[p] * meals[p];
+            worst = Math.max(worst, maxWait[p]);
+        }
+        double jain = sumSq == 0 ? 1 : (double) total * total / (parties * sumSq);
+        System.out.printf("%-16s %6d parties: %8.0f meals/s, avg wait %7.1f us, max starvation %7.1f ms, "
+                        + "fairness %.2f, contention %.2f/meal%n",
+                lock.name(), parties, total / seconds, waitNanos.sum() / 1e3 / Math.max(1, total),
+                worst / 1e6, jain, lock.contentionEvents() / (double) Math.max(1, total));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxParties = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        System.out.println("=== Philosophers around one table (think <=100 us, eat 50 us) ===");
+        for (int n : new int[]{5, 100, 1_000, 10_000}) {
+            if (n > maxParties) break;
+            long millis = n >= 1_000 ? 2_000 : 1_000;
+            simulate(new Ordered(n), n, philosophers(n), 100, 50, millis);
+            simulate(new TryAllBackoff(n), n, philosophers(n), 100, 50, millis);
+            simulate(new Waiter(n), n, philosophers(n), 100, 50, millis);
+        }
+
+        System.out.println("=== 32 workers locking 2-4 of 64 account rows (eat 20 us) ===");
+        simulate(new Ordered(64), 32, transfers(64), 50, 20, 1_000);
+        simulate(new TryAllBackoff(64), 32, transfers(64), 50, 20, 1_000);
+        simulate(new Waiter(64), 32, transfers(64), 50, 20, 1_000);
+    }
+}
@@ -0,0 +1,329 @@
+package examples;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The students-and-library problem as a service: a catalog of books with a few copies each,
+ * students borrowing and returning them, and occasional all-or-nothing reservations of several
+ * titles at once (a course reading list).
+ * <p>
+ * Two implementations of {@link Inventory} to compare under load:
+ * <ul>
+ *   <li>{@link Optimistic} — every title is one {@code AtomicInteger} of copies on the shelf;
+ *       borrow and return are a read and a CAS, retried only if someone else changed that title
+ *       in between. A reading list is taken title by title in id order and rolled back if any
+ *       title is out.</li>
+ *   <li>{@link Locked} — one lock around the whole catalog, the straightforward version.</li>
+ * </ul>
+ * Students who find a title out can wait for a copy to come back, up to a timeout.
+ * {@link #simulate} runs thousands of students with think and reading times against either one.
+ */
+public class LibraryInventory {
+
+    public interface Inventory {
+        /** Takes a copy, waiting up to {@code timeout} for one to come back; false on timeout. */
+        boolean borrow(int book, long timeout, TimeUnit unit) throws InterruptedException;
+
+        void giveBack(int book);
+
+        /** Takes one copy of every title or none of them; never waits. */
+        boolean reserveAll(int[] books);
+
+        void giveBackAll(int[] books);
+
+        int available(int book);
+
+        String name();
+    }
+
+    public static final class Optimistic implements Inventory {
+        private static final class Title {
+            // Only the count matters, so a CAS that sees the same count after a borrow and a
+            // return in between (ABA) is still correct: no version stamp needed
+            final AtomicInteger copies;
+            final AtomicInteger waiters = new AtomicInteger();
+
+            Title(int copies) {
+                this.copies = new AtomicInteger(copies);
+            }
+        }
+
+        private final Title[] titles;
+        private final LongAdder conflicts = new LongAdder();
+
+        public Optimistic(int[] copies) {
+            titles = new Title[copies.length];
+            for (int i = 0; i < copies.length; i++) titles[i] = new Title(copies[i]);
+        }
+
+        /** Adds {@code delta} copies unless that would go below zero. */
+        private boolean tryAdjust(Title t, int delta) {
+            while (true) {
+                int current = t.copies.get();
+                int next = current + delta;
+                if (next < 0) return false;
+                if (t.copies.compareAndSet(current, next)) return true;
+                conflicts.increment(); // someone else touched this title between our read and our write
+            }
+        }
+
+        @Override
+        public boolean borrow(int book, long timeout, TimeUnit unit) throws InterruptedException {
+            Title t = titles[book];
+            if (tryAdjust(t, -1)) return true;
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (t) {
+                // Register before re-checking, so a giveBack() racing with us either sees the
+                // waiter and notifies, or happened early enough for the re-check to see the copy
+                t.waiters.incrementAndGet();
+                try {
+                    while (!tryAdjust(t, -1)) {
+                        long left = deadline - System.nanoTime();
+                        if (left <= 0) return false;
+                        TimeUnit.NANOSECONDS.timedWait(t, left);
+                    }
+                    return true;
+                } finally {
+                    t.waiters.decrementAndGet();
+                }
+            }
+        }
+
+        @Override
+        public void giveBack(int book) {
+            Title t = titles[book];
+            tryAdjust(t, +1);
+            if (t.waiters.get() > 0) {
+                synchronized (t) {
+                    t.notify();
+                }
+            }
+        }
+
+        @Override
+        public boolean reserveAll(int[] books) {
+            int[] sorted = books.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length; i++) {
+                if (!tryAdjust(titles[sorted[i]], -1)) {
+                    for (int j = i - 1; j >= 0; j--) giveBack(sorted[j]);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void giveBackAll(int[] books) {
+            for (int b : books) giveBack(b);
+        }
+
+        @Override
+        public int available(int book) {
+            return titles[book].copies.get();
+        }
+
+        public long conflicts() {
+            return conflicts.sum();
+        }
+
+        @Override
+        public String name() {
+            return "optimistic";
+        }
+    }
+
+    public static final class Locked implements Inventory {
+        private final int[] copies;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition returned = lock.newCondition();
+
+        public Locked(int[] copies) {
+            this.copies = copies.clone();
+        }
+
+        @Override
+        public boolean borrow(int book, long timeout, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            lock.lock();
+            try {
+                while (copies[book] == 0) {
+                    if (nanos <= 0) return false;
+                    nanos = returned.awaitNanos(nanos); // one condition for all titles: every return wakes everyone
+                }
+                copies[book]--;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void giveBack(int book) {
+            giveBackAll(new int[]{book});
+        }
+
+        @Override
+        public boolean reserveAll(int[] books) {
+            lock.lock();
+            try {
+                for (int b : books) {
+                    if (copies[b] == 0) return false;
+                }
+                for (int b : books) copies[b]--;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void giveBackAll(int[] books) {
+            lock.lock();
+            try {
+                for (int b : books) copies[b]++;
+                returned.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int available(int book) {
+            lock.lock();
+            try {
+                return copies[book];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String name() {
+            return "global lock";
+        }
+    }
+
+    /** Per-student latency samples, merged once at the end. */
+    private static final class Samples {
+        long[] nanos = new long[256];
+        int size;
+
+        void add(long v) {
+            if (size == nanos.length) nanos = Arrays.copyOf(nanos, size * 2);
+            nanos[size++] = v;
+        }
+    }
+
+    /** Popular titles are borrowed far more often: squaring a uniform number skews towards 0. */
+    private static int pickTitle(ThreadLocalRandom rnd, int titles) {
+        double u = rnd.nextDouble();
+        return (int) (u * u * titles);
+    }
+
+    public static void simulate(Inventory inventory, int[] copies, int students, long millis)
+            throws InterruptedException {
+        int titles = copies.length;
+        Samples[] samples = new Samples[students];
+        LongAdder borrowed = new LongAdder();
+        LongAdder timedOut = new LongAdder();
+        LongAdder listsOk = new LongAdder();
+        LongAdder listsFailed = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] stopAt = new long[1];
+        Thread[] threads = new Thread[students];
+        for (int s = 0; s < students; s++) {
+            Samples mine = samples[s] = new Samples();
+            threads[s] = new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    while (System.nanoTime() < stopAt[0]) {
+                        Thread.sleep(1 + rnd.nextInt(20)); // think
+                        if (rnd.nextInt(10) < 8) {
+                            int book = pickTitle(rnd, titles);
+                            long t0 = System.nanoTime();
+                            boolean ok = inventory.borrow(book, 50, TimeUnit.MILLISECONDS);
+                            mine.add(System.nanoTime() - t0);
+                            if (!ok) {
+                                timedOut.increment();
+                                continue;
+                            }
+                            borrowed.increment();
+                            Thread.sleep(5 + rnd.nextInt(25)); // read
+                            inventory.giveBack(book);
+                        } else {
+                            int[] list = rnd.ints(0, titles).distinct().limit(2 + rnd.nextInt(3)).toArray();
+                            long t0 = System.nanoTime();
+                            boolean ok = inventory.reserveAll(list);
+                            mine.add(System.nanoTime() - t0);
+                            if (!ok) {
+                                listsFailed.increment();
+                                continue;
+                            }
+                            listsOk.increment();
+                            Thread.sleep(5 + rnd.nextInt(25));
+                            inventory.giveBackAll(list);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Student-" + s);
+            threads[s].start();
+        }
+        long t0 = System.nanoTime();
+        stopAt[0] = t0 + TimeUnit.MILLISECONDS.toNanos(millis);
+        start.countDown();
+        for (Thread t : threads) t.join();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        int n = 0;
+        for (Samples s : samples) n += s.size;
+        long[] all = new long[n];
+        int at = 0;
+        for (Samples s : samples) {
+            System.arraycopy(s.nanos, 0, all, at, s.size);
+            at += s.size;
+        }
+        Arrays.sort(all);
+
+        for (int b = 0; b < titles; b++) {
+            if (inventory.available(b) != copies[b]) throw new IllegalStateException("Lost a copy of title " + b);
+        }
+        System.out.printf("%-12s %5d students: %6.0f ops/s | borrows %d, timeouts %d, lists %d ok / %d unavailable%n",
+                inventory.name(), students, n / seconds, borrowed.sum(), timedOut.sum(), listsOk.sum(),
+                listsFailed.sum());
+        System.out.printf("%-12s wait p50=%.3f ms p90=%.3f ms p99=%.2f ms max=%.1f ms%s%n", "",
+                percentile(all, 50), percentile(all, 90), percentile(all, 99), percentile(all, 100),
+                inventory instanceof Optimistic o ? ", CAS conflicts " + o.conflicts() : "");
+    }
+
+    /** In milliseconds; NaN when there are no samples, e.g. a run too short for anyone to finish thinking. */
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return Double.NaN;
+        int i = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, i)] / 1e6;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int[] copies = new int[500];
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int i = 0; i < copies.length; i++) copies[i] = 1 + rnd.nextInt(5);
+
+        // Warm both up briefly, then measure
+        simulate(new Optimistic(copies), copies, 100, 500);
+        simulate(new Locked(copies), copies, 100, 500);
+        System.out.println("----");
+        simulate(new Optimistic(copies), copies, students, 3_000);
+        simulate(new Locked(copies), copies, students, 3_000);
+    }
+}
@@ -0,0 +1,277 @@
+package examples;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
+
+/**
+ * Parallel reduce, scan (prefix sums) and filter over primitive arrays.
+ * <p>
+ * Everything uses the same two-pass blocked scheme on fork-join: cut the array into a few blocks
+ * per core; pass one reduces every block in parallel; a short sequential scan over the block
+ * totals gives every block its starting value; pass two scans every block in parallel from that
+ * value. Each element is read twice and written once, and the only extra memory is one value per
+ * block.
+ * <p>
+ * Operators must be associative (sum, min, max, and, or, ...). Floating-point addition is not
+ * exactly associative, so parallel double sums can differ from a sequential loop in the last bits.
+ * Inputs below {@value #SEQUENTIAL_THRESHOLD} elements are processed sequentially.
+ */
+public class ParallelScan {
+    static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+    static final int BLOCKS_PER_CORE = 4;
+
+    private ParallelScan() {
+    }
+
+    private static int blocks(int n) {
+        if (n < SEQUENTIAL_THRESHOLD) return 1;
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        return Math.max(1, Math.min(parallelism * BLOCKS_PER_CORE, n / (SEQUENTIAL_THRESHOLD / 4)));
+    }
+
+    private static int blockStart(int n, int blocks, int b) {
+        return (int) ((long) n * b / blocks);
+    }
+
+    /** Runs {@code body(b)} for every block, in parallel when there is more than one. */
+    private static void eachBlock(int blocks, IntConsumer body) {
+        if (blocks == 1) body.accept(0);
+        else ParallelSort.forEach(ForkJoinPool.commonPool(), blocks, body);
+    }
+
+    public static long reduce(long[] a, long identity, LongBinaryOperator op) {
+        int n = a.length, blocks = blocks(n);
+        long[] partial = new long[blocks];
+        eachBlock(blocks, b -> {
+            long acc = identity;
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                acc = op.applyAsLong(acc, a[i]);
+            }
+            partial[b] = acc;
+        });
+        long acc = identity;
+        for (long p : partial) acc = op.applyAsLong(acc, p);
+        return acc;
+    }
+
+    public static double reduce(double[] a, double identity, DoubleBinaryOperator op) {
+        int n = a.length, blocks = blocks(n);
+        double[] partial = new double[blocks];
+        eachBlock(blocks, b -> {
+            double acc = identity;
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                acc = op.applyAsDouble(acc, a[i]);
+            }
+            partial[b] = acc;
+        });
+        double acc = identity;
+        for (double p : partial) acc = op.applyAsDouble(acc, p);
+        return acc;
+    }
+
+    /** out[i] = a[0] op ... op a[i]. {@code out} may be {@code a} itself. */
+    public static void inclusiveScan(long[] a, long[] out, long identity, LongBinaryOperator op) {
+        scan(a, out, identity, op, true);
+    }
+
+    /** out[i] = identity op a[0] op ... op a[i-1]; returns the total. {@code out} may be {@code a} itself. */
+    public static long exclusiveScan(long[] a, long[] out, long identity, LongBinaryOperator op) {
+        return scan(a, out, identity, op, false);
+    }
+
+    private static long scan(long[] a, long[] out, long identity, LongBinaryOperator op, boolean inclusive) {
+        int n = a.length, blocks = blocks(n);
+        if (out.length < n) throw new IllegalArgumentException("Output shorter than input");
+        long[] carry = new long[blocks + 1];
+        if (blocks > 1) {
+            eachBlock(blocks, b -> {
+                long acc = identity;
+                for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                    acc = op.applyAsLong(acc, a[i]);
+                }
+                carry[b + 1] = acc;
+            });
+        }
+        // carry[b] becomes everything before block b
+        carry[0] = identity;
+        for (int b = 1; b <= blocks; b++) carry[b] = op.applyAsLong(carry[b - 1], carry[b]);
+
+        long[] total = new long[1];
+        eachBlock(blocks, b -> {
+            long acc = carry[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                long v = a[i]; // read first: out may alias a
+                long next = op.applyAsLong(acc, v);
+                out[i] = inclusive ? next : acc;
+                acc = next;
+            }
+            if (b == blocks - 1) total[0] = acc;
+        });
+        return total[0];
+    }
+
+    /** out[i] = a[0] op ... op a[i], in double. {@code out} may be {@code a} itself. */
+    public static void inclusiveScan(double[] a, double[] out, double identity, DoubleBinaryOperator op) {
+        int n = a.length, blocks = blocks(n);
+        if (out.length < n) throw new IllegalArgumentException("Output shorter than input");
+        double[] carry = new double[blocks + 1];
+        if (blocks > 1) {
+            eachBlock(blocks, b -> {
+                double acc = identity;
+                for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                    acc = op.applyAsDouble(acc, a[i]);
+                }
+                carry[b + 1] = acc;
+            });
+        }
+        carry[0] = identity;
+        for (int b = 1; b <= blocks; b++) carry[b] = op.applyAsDouble(carry[b - 1], carry[b]);
+        eachBlock(blocks, b -> {
+            double acc = carry[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                out[i] = acc = op.applyAsDouble(acc, a[i]);
+            }
+        });
+    }
+
+    /**
+     * Inclusive scan that restarts wherever {@code segmentStart[i]} is true, e.g. running totals per
+     * customer in a customer-sorted column. A block's carry-in only reaches up to its first segment
+     * start, and a block containing a start passes on only what comes after its last one.
+     */
+    public static void segmentedInclusiveScan(long[] a, boolean[] segmentStart, long[] out, long identity,
+                                              LongBinaryOperator op) {
+        int n = a.length, blocks = blocks(n);
+        if (out.length < n) throw new IllegalArgumentException("Output shorter than input");
+        if (segmentStart.length < n) throw new IllegalArgumentException("Segment flags shorter than input");
+        long[] carry = new long[blocks + 1];
+        boolean[] resets = new boolean[blocks + 1]; // block b contains a segment start
+        if (blocks > 1) {
+            eachBlock(blocks, b -> {
+                long acc = identity;
+                boolean reset = false;
+                for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                    if (segmentStart[i]) {
+                        acc = identity;
+                        reset = true;
+                    }
+                    acc = op.applyAsLong(acc, a[i]);
+                }
+                carry[b + 1] = acc;
+                resets[b + 1] = reset;
+            });
+        }
+        carry[0] = identity;
+        for (int b = 1; b <= blocks; b++) {
+            if (!resets[b]) carry[b] = op.applyAsLong(carry[b - 1], carry[b]);
+        }
+        eachBlock(blocks, b -> {
+            long acc = carry[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                if (segmentStart[i]) acc = identity;
+                out[i] = acc = op.applyAsLong(acc, a[i]);
+            }
+        });
+    }
+
+    /** The elements matching {@code keep}, in their original order (stream compaction). */
+    public static long[] filter(long[] a, LongPredicate keep) {
+        int n = a.length, blocks = blocks(n);
+        // Pass one counts survivors per block; their exclusive scan is where each block writes
+        int[] offset = new int[blocks + 1];
+        eachBlock(blocks, b -> {
+            int count = 0;
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                if (keep.test(a[i])) count++;
+            }
+            offset[b + 1] = count;
+        });
+        for (int b = 1; b <= blocks; b++) offset[b] += offset[b - 1];
+
+        long[] out = new long[offset[blocks]];
+        eachBlock(blocks, b -> {
+            int at = offset[b];
+            for (int i = blockStart(n, blocks, b), end = blockStart(n, blocks, b + 1); i < end; i++) {
+                if (keep.test(a[i])) out[at++] = a[i];
+            }
+        });
+        return out;
+    }
+
+    private static double millis(Runnable r) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long t0 = System.nanoTime();
+            r.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1e6;
+    }
+
+    public static void main(String[] args) {
+        int n = 20_000_000;
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        long[] a = rnd.longs(n, 0, 1000).toArray();
+        long[] out = new long[n];
+        System.out.printf("n=%,d, parallelism=%d, blocks=%d%n", n, ForkJoinPool.commonPool().getParallelism(), blocks(n));
+
+        // Correctness against plain loops
+        long[] expected = a.clone();
+        for (int i = 1; i < n; i++) expected[i] += expected[i - 1];
+        inclusiveScan(a, out, 0, Long::sum);
+        if (!Arrays.equals(out, expected)) throw new IllegalStateException("inclusive scan");
+        long total = exclusiveScan(a, out, 0, Long::sum);
+        if (total != expected[n - 1] || out[0] != 0 || out[n - 1] != expected[n - 2]) {
+            throw new IllegalStateException("exclusive scan");
+        }
+        if (reduce(a, Long.MIN_VALUE, Math::max) != Arrays.stream(a).max().getAsLong()) {
+            throw new IllegalStateException("reduce");
+        }
+        boolean[] starts = new boolean[n];
+        for (int i = 0; i < n; i += 1 + rnd.nextInt(100_000)) starts[i] = true;
+        segmentedInclusiveScan(a, starts, out, 0, Long::sum);
+        long acc = 0;
+        for (int i = 0; i < n; i++) {
+            acc = (starts[i] ? 0 : acc) + a[i];
+            if (out[i] != acc) throw new IllegalStateException("segmented scan at " + i);
+        }
+        long[] evens = filter(a, v -> v % 2 == 0);
+        if (!Arrays.equals(evens, Arrays.stream(a).filter(v -> v % 2 == 0).toArray())) {
+            throw new IllegalStateException("filter");
+        }
+        System.out.println("All results match the sequential versions");
+
+        System.out.printf("sum:       loop %7.2f ms, parallel reduce %7.2f ms%n",
+                millis(() -> {
+                    long s = 0;
+                    for (long v : a) s += v;
+                    if (s == 42) System.out.print("");
+                }),
+                millis(() -> reduce(a, 0, Long::sum)));
+        System.out.printf("scan:      loop %7.2f ms, Arrays.parallelPrefix %7.2f ms, inclusiveScan %7.2f ms%n",
+                millis(() -> {
+                    long s = 0;
+                    for (int i = 0; i < n; i++) out[i] = s += a[i];
+                }),
+                millis(() -> {
+                    System.arraycopy(a, 0, out, 0, n);
+                    Arrays.parallelPrefix(out, Long::sum);
+                }),
+                millis(() -> inclusiveScan(a, out, 0, Long::sum)));
+        System.out.printf("segmented: parallel %7.2f ms%n", millis(() -> segmentedInclusiveScan(a, starts, out, 0, Long::sum)));
+        System.out.printf("filter:    stream %7.2f ms, parallel filter %7.2f ms (%,d of %,d kept)%n",
+                millis(() -> Arrays.stream(a).filter(v -> v % 2 == 0).toArray()),
+                millis(() -> filter(a, v -> v % 2 == 0)), evens.length, n);
+
+        double[] d = rnd.doubles(n).toArray();
+        double[] dout = new double[n];
+        inclusiveScan(d, dout, 0, Double::sum);
+        System.out.printf("double scan: last=%.6f, reduce=%.6f (may differ in the last bits)%n",
+                dout[n - 1], reduce(d, 0, Double::sum));
+    }
+}
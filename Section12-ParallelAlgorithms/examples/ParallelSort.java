@@ -0,0 +1,616 @@
+package examples;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Parallel sorting for {@code int[]}, {@code long[]}, {@code double[]} and object arrays, in two flavours.
+ * <p>
+ * <b>Merge sort</b> — fork-join: halves are sorted in parallel down to a sequential cutoff, below
+ * which the recursion continues sequentially with insertion sort for runs of
+ * {@value #INSERTION_CUTOFF} or fewer. Large merges are split in two by binary search so the top
+ * levels stay parallel too. A single scratch array is allocated up front; each level of the
+ * recursion just swaps which of the two arrays is source and which is target.
+ * <p>
+ * <b>Sample sort</b> — one pass instead of log(n) merge levels: pick splitters from a random
+ * sample, count how many values of each block fall in each bucket, scatter every value straight
+ * to its final bucket, then sort the buckets independently ({@value #BUCKETS_PER_CORE} per core,
+ * at most {@value #MAX_BUCKETS}). Very skewed data (one value repeated millions of times) ends up
+ * in one bucket and loses the parallelism of that bucket.
+ * <p>
+ * Both algorithms are written once against {@link Kind}, which supplies the few loops that depend
+ * on the element type. Each of those works on a whole range, so the per-element work stays in
+ * code specialised for {@code int}, {@code long}, {@code double} or a comparator.
+ * <p>
+ * Object sorts are stable (equal elements keep their order); the primitive ones order doubles
+ * like {@link Double#compare}, i.e. -0.0 before 0.0 and NaN last, same as {@link Arrays#sort}.
+ */
+public class ParallelSort {
+    static final int INSERTION_CUTOFF = 32;
+    static final int MERGE_CUTOFF = 8_192;
+    static final int SAMPLE_SORT_MIN = 1 << 16;
+    static final int BUCKETS_PER_CORE = 4;
+    static final int MAX_BUCKETS = 256; // bucket numbers fit in a byte
+    static final int OVERSAMPLE = 64;
+
+    private ParallelSort() {
+    }
+
+    public static void mergeSort(int[] a) {
+        mergeSort(Ints.KIND, a, a.length, ForkJoinPool.commonPool());
+    }
+
+    public static void mergeSort(long[] a) {
+        mergeSort(Longs.KIND, a, a.length, ForkJoinPool.commonPool());
+    }
+
+    public static void mergeSort(double[] a) {
+        mergeSort(Doubles.KIND, a, a.length, ForkJoinPool.commonPool());
+    }
+
+    public static <T> void mergeSort(T[] a, Comparator<? super T> cmp) {
+        mergeSort(new Refs<>(cmp), a, a.length, ForkJoinPool.commonPool());
+    }
+
+    public static void sampleSort(int[] a) {
+        sampleSort(Ints.KIND, a, a.length, ForkJoinPool.commonPool());
+    }
+
+    public static void sampleSort(long[] a) {
+        sampleSort(Longs.KIND, a, a.length, ForkJoinPool.commonPool());
+    }
+
+    public static void sampleSort(double[] a) {
+        sampleSort(Doubles.KIND, a, a.length, ForkJoinPool.commonPool());
+    }
+
+    public static <T> void sampleSort(T[] a, Comparator<? super T> cmp) {
+        sampleSort(new Refs<>(cmp), a, a.length, ForkJoinPool.commonPool());
+    }
+
+    /** The loops that depend on the element type; {@code A} is the array type. */
+    interface Kind<A> {
+        A newArray(A like, int n);
+
+        void insertionSort(A a, int lo, int hi);
+
+        /** Sequential sort of a[lo, hi); must be stable for objects. */
+        void sort(A a, int lo, int hi);
+
+        /** First index in [lo, hi) whose value is greater than {@code keys[k]} ({@code inclusive}: greater or equal). */
+        int search(A a, int lo, int hi, A keys, int k, boolean inclusive);
+
+        /** Sequential merge of src[lo1, hi1) and src[lo2, hi2) into dst from {@code at}; left wins ties. */
+        void merge(A src, int lo1, int hi1, int lo2, int hi2, A dst, int at);
+
+        /** A new array holding {@code src[index[i]]} at every i. */
+        A gather(A src, int[] index);
+
+        /** Moves every src[i], i in [from, to), to {@code dst[offsets[bucketOf[i]]++]}. */
+        void scatter(A src, int from, int to, byte[] bucketOf, int[] offsets, A dst);
+    }
+
+    /** Below this many elements a subproblem is sorted without forking: ~8 tasks per core, never tiny ones. */
+    static int cutoff(int n, ForkJoinPool pool) {
+        return Math.max(MERGE_CUTOFF, n / (pool.getParallelism() * 8));
+    }
+
+    /** Runs {@code body} for 0..n-1 in parallel, one index per leaf (n is a handful of blocks or buckets). */
+    static void forEach(ForkJoinPool pool, int n, IntConsumer body) {
+        pool.invoke(new RangeTask(0, n, body));
+    }
+
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveAction {
+        final int lo, hi;
+        final IntConsumer body;
+
+        RangeTask(int lo, int hi, IntConsumer body) {
+            this.lo = lo;
+            this.hi = hi;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                body.accept(lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new RangeTask(lo, mid, body), new RangeTask(mid, hi, body));
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class MergeTask<A> extends RecursiveAction {
+        final Kind<A> kind;
+        final A src, dst;
+        final int lo1, hi1, lo2, hi2, at;
+
+        MergeTask(Kind<A> kind, A src, int lo1, int hi1, int lo2, int hi2, A dst, int at) {
+            this.kind = kind;
+            this.src = src;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dst = dst;
+            this.at = at;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = hi1 - lo1, n2 = hi2 - lo2;
+            if (n1 + n2 <= MERGE_CUTOFF) {
+                kind.merge(src, lo1, hi1, lo2, hi2, dst, at);
+                return;
+            }
+            // Split the longer run in half and the other at the same value: two independent merges
+            int m1, m2;
+            if (n1 >= n2) {
+                m1 = (lo1 + hi1) >>> 1;
+                m2 = kind.search(src, lo2, hi2, src, m1, true); // right-run equals go after: stable
+            } else {
+                m2 = (lo2 + hi2) >>> 1;
+                m1 = kind.search(src, lo1, hi1, src, m2, false); // left-run equals go before: stable
+            }
+            invokeAll(new MergeTask<>(kind, src, lo1, m1, lo2, m2, dst, at),
+                    new MergeTask<>(kind, src, m1, hi1, m2, hi2, dst, at + (m1 - lo1) + (m2 - lo2)));
+        }
+    }
+
+    /** Sorts a[lo, hi), leaving the result in {@code b} when {@code intoB}, else in {@code a}. */
+    @SuppressWarnings("serial")
+    static final class SortTask<A> extends RecursiveAction {
+        final Kind<A> kind;
+        final A a, b;
+        final int lo, hi;
+        final boolean intoB;
+        final int cutoff;
+
+        SortTask(Kind<A> kind, A a, A b, int lo, int hi, boolean intoB, int cutoff) {
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+            this.lo = lo;
+            this.hi = hi;
+            this.intoB = intoB;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                sequential(kind, a, b, lo, hi, intoB);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            // Halves land in the array we are *not* merging into, so every level just swaps roles
+            invokeAll(new SortTask<>(kind, a, b, lo, mid, !intoB, cutoff),
+                    new SortTask<>(kind, a, b, mid, hi, !intoB, cutoff));
+            A src = intoB ? a : b, dst = intoB ? b : a;
+            new MergeTask<>(kind, src, lo, mid, mid, hi, dst, lo).compute();
+        }
+    }
+
+    static <A> void sequential(Kind<A> kind, A a, A b, int lo, int hi, boolean intoB) {
+        if (hi - lo <= INSERTION_CUTOFF) {
+            kind.insertionSort(a, lo, hi);
+            if (intoB) System.arraycopy(a, lo, b, lo, hi - lo);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sequential(kind, a, b, lo, mid, !intoB);
+        sequential(kind, a, b, mid, hi, !intoB);
+        if (intoB) kind.merge(a, lo, mid, mid, hi, b, lo);
+        else kind.merge(b, lo, mid, mid, hi, a, lo);
+    }
+
+    static <A> void mergeSort(Kind<A> kind, A a, int n, ForkJoinPool pool) {
+        if (n <= INSERTION_CUTOFF) {
+            kind.insertionSort(a, 0, n);
+            return;
+        }
+        A buffer = kind.newArray(a, n); // the only allocation: one scratch array, reused at every level
+        pool.invoke(new SortTask<>(kind, a, buffer, 0, n, false, cutoff(n, pool)));
+    }
+
+    static <A> void sampleSort(Kind<A> kind, A a, int n, ForkJoinPool pool) {
+        int buckets = Math.min(MAX_BUCKETS, pool.getParallelism() * BUCKETS_PER_CORE);
+        if (n < SAMPLE_SORT_MIN || buckets < 2) {
+            mergeSort(kind, a, n, pool);
+            return;
+        }
+        // Splitters: every OVERSAMPLE-th value of a sorted random sample
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        A sample = kind.gather(a, rnd.ints(buckets * OVERSAMPLE, 0, n).toArray());
+        kind.sort(sample, 0, buckets * OVERSAMPLE);
+        int[] picks = new int[buckets - 1];
+        for (int i = 0; i < picks.length; i++) picks[i] = (i + 1) * OVERSAMPLE;
+        A splitters = kind.gather(sample, picks);
+
+        int blocks = buckets;
+        int blockSize = (n + blocks - 1) / blocks;
+        int[][] counts = new int[blocks][buckets];
+        byte[] bucketOf = new byte[n]; // remember the bucket so the scatter skips the search
+        forEach(pool, blocks, blk -> {
+            int[] c = counts[blk];
+            for (int i = blk * blockSize, end = Math.min(n, i + blockSize); i < end; i++) {
+                int k = kind.search(splitters, 0, buckets - 1, a, i, false);
+                bucketOf[i] = (byte) k;
+                c[k]++;
+            }
+        });
+
+        // Exclusive prefix over (bucket, block): where each block writes within each bucket
+        int[] bucketStart = new int[buckets + 1];
+        int[][] offsets = new int[blocks][buckets];
+        int pos = 0;
+        for (int k = 0; k < buckets; k++) {
+            bucketStart[k] = pos;
+            for (int blk = 0; blk < blocks; blk++) {
+                offsets[blk][k] = pos;
+                pos += counts[blk][k];
+            }
+        }
+        bucketStart[buckets] = n;
+
+        // Blocks scatter in index order within each bucket, so a stable bucket sort keeps objects stable
+        A buffer = kind.newArray(a, n);
+        forEach(pool, blocks, blk -> {
+            int from = blk * blockSize;
+            kind.scatter(a, from, Math.min(n, from + blockSize), bucketOf, offsets[blk], buffer);
+        });
+        // Buckets are independent: sort each in place and copy it back
+        forEach(pool, buckets, k -> {
+            int lo = bucketStart[k], hi = bucketStart[k + 1];
+            kind.sort(buffer, lo, hi);
+            System.arraycopy(buffer, lo, a, lo, hi - lo);
+        });
+    }
+
+    static final class Ints implements Kind<int[]> {
+        static final Ints KIND = new Ints();
+
+        private Ints() {
+        }
+
+        @Override
+        public int[] newArray(int[] like, int n) {
+            return new int[n];
+        }
+
+        @Override
+        public void insertionSort(int[] a, int lo, int hi) {
+            for (int i = lo + 1; i < hi; i++) {
+                int v = a[i];
+                int j = i - 1;
+                while (j >= lo && v < a[j]) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = v;
+            }
+        }
+
+        @Override
+        public void sort(int[] a, int lo, int hi) {
+            Arrays.sort(a, lo, hi);
+        }
+
+        @Override
+        public int search(int[] a, int lo, int hi, int[] keys, int k, boolean inclusive) {
+            int v = keys[k];
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (inclusive ? a[mid] < v : !(v < a[mid])) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        @Override
+        public void merge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int at) {
+            while (lo1 < hi1 && lo2 < hi2) dst[at++] = src[lo2] < src[lo1] ? src[lo2++] : src[lo1++];
+            System.arraycopy(src, lo1, dst, at, hi1 - lo1);
+            System.arraycopy(src, lo2, dst, at + hi1 - lo1, hi2 - lo2);
+        }
+
+        @Override
+        public int[] gather(int[] src, int[] index) {
+            int[] out = new int[index.length];
+            for (int i = 0; i < index.length; i++) out[i] = src[index[i]];
+            return out;
+        }
+
+        @Override
+        public void scatter(int[] src, int from, int to, byte[] bucketOf, int[] offsets, int[] dst) {
+            for (int i = from; i < to; i++) dst[offsets[bucketOf[i] & 0xFF]++] = src[i];
+        }
+
+        static boolean isSorted(int[] a) {
+            for (int i = 1; i < a.length; i++) {
+                if (a[i] < a[i - 1]) return false;
+            }
+            return true;
+        }
+    }
+
+    static final class Longs implements Kind<long[]> {
+        static final Longs KIND = new Longs();
+
+        private Longs() {
+        }
+
+        @Override
+        public long[] newArray(long[] like, int n) {
+            return new long[n];
+        }
+
+        @Override
+        public void insertionSort(long[] a, int lo, int hi) {
+            for (int i = lo + 1; i < hi; i++) {
+                long v = a[i];
+                int j = i - 1;
+                while (j >= lo && v < a[j]) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = v;
+            }
+        }
+
+        @Override
+        public void sort(long[] a, int lo, int hi) {
+            Arrays.sort(a, lo, hi);
+        }
+
+        @Override
+        public int search(long[] a, int lo, int hi, long[] keys, int k, boolean inclusive) {
+            long v = keys[k];
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (inclusive ? a[mid] < v : !(v < a[mid])) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        @Override
+        public void merge(long[] src, int lo1, int hi1, int lo2, int hi2, long[] dst, int at) {
+            while (lo1 < hi1 && lo2 < hi2) dst[at++] = src[lo2] < src[lo1] ? src[lo2++] : src[lo1++];
+            System.arraycopy(src, lo1, dst, at, hi1 - lo1);
+            System.arraycopy(src, lo2, dst, at + hi1 - lo1, hi2 - lo2);
+        }
+
+        @Override
+        public long[] gather(long[] src, int[] index) {
+            long[] out = new long[index.length];
+            for (int i = 0; i < index.length; i++) out[i] = src[index[i]];
+            return out;
+        }
+
+        @Override
+        public void scatter(long[] src, int from, int to, byte[] bucketOf, int[] offsets, long[] dst) {
+            for (int i = from; i < to; i++) dst[offsets[bucketOf[i] & 0xFF]++] = src[i];
+        }
+
+        static boolean isSorted(long[] a) {
+            for (int i = 1; i < a.length; i++) {
+                if (a[i] < a[i - 1]) return false;
+            }
+            return true;
+        }
+    }
+
+    /** Orders by {@link Double#compare}, like {@link Arrays#sort(double[])}. */
+    static final class Doubles implements Kind<double[]> {
+        static final Doubles KIND = new Doubles();
+
+        private Doubles() {
+        }
+
+        @Override
+        public double[] newArray(double[] like, int n) {
+            return new double[n];
+        }
+
+        @Override
+        public void insertionSort(double[] a, int lo, int hi) {
+            for (int i = lo + 1; i < hi; i++) {
+                double v = a[i];
+                int j = i - 1;
+                while (j >= lo && Double.compare(v, a[j]) < 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = v;
+            }
+        }
+
+        @Override
+        public void sort(double[] a, int lo, int hi) {
+            Arrays.sort(a, lo, hi);
+        }
+
+        @Override
+        public int search(double[] a, int lo, int hi, double[] keys, int k, boolean inclusive) {
+            double v = keys[k];
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (inclusive ? Double.compare(a[mid], v) < 0 : !(Double.compare(v, a[mid]) < 0)) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        @Override
+        public void merge(double[] src, int lo1, int hi1, int lo2, int hi2, double[] dst, int at) {
+            while (lo1 < hi1 && lo2 < hi2) dst[at++] = Double.compare(src[lo2], src[lo1]) < 0 ? src[lo2++] : src[lo1++];
+            System.arraycopy(src, lo1, dst, at, hi1 - lo1);
+            System.arraycopy(src, lo2, dst, at + hi1 - lo1, hi2 - lo2);
+        }
+
+        @Override
+        public double[] gather(double[] src, int[] index) {
+            double[] out = new double[index.length];
+            for (int i = 0; i < index.length; i++) out[i] = src[index[i]];
+            return out;
+        }
+
+        @Override
+        public void scatter(double[] src, int from, int to, byte[] bucketOf, int[] offsets, double[] dst) {
+            for (int i = from; i < to; i++) dst[offsets[bucketOf[i] & 0xFF]++] = src[i];
+        }
+
+        static boolean isSorted(double[] a) {
+            for (int i = 1; i < a.length; i++) {
+                if (Double.compare(a[i], a[i - 1]) < 0) return false;
+            }
+            return true;
+        }
+    }
+
+    /** Object arrays under a comparator; every step keeps equal elements in order. */
+    static final class Refs<T> implements Kind<T[]> {
+        private final Comparator<? super T> cmp;
+
+        Refs(Comparator<? super T> cmp) {
+            this.cmp = cmp;
+        }
+
+        @Override
+        public T[] newArray(T[] like, int n) {
+            return Arrays.copyOf(like, n);
+        }
+
+        @Override
+        public void insertionSort(T[] a, int lo, int hi) {
+            for (int i = lo + 1; i < hi; i++) {
+                T v = a[i];
+                int j = i - 1;
+                while (j >= lo && cmp.compare(v, a[j]) < 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = v;
+            }
+        }
+
+        @Override
+        public void sort(T[] a, int lo, int hi) {
+            Arrays.sort(a, lo, hi, cmp);
+        }
+
+        @Override
+        public int search(T[] a, int lo, int hi, T[] keys, int k, boolean inclusive) {
+            T v = keys[k];
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = cmp.compare(a[mid], v);
+                if (inclusive ? c < 0 : c <= 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        @Override
+        public void merge(T[] src, int lo1, int hi1, int lo2, int hi2, T[] dst, int at) {
+            while (lo1 < hi1 && lo2 < hi2) dst[at++] = cmp.compare(src[lo2], src[lo1]) < 0 ? src[lo2++] : src[lo1++];
+            System.arraycopy(src, lo1, dst, at, hi1 - lo1);
+            System.arraycopy(src, lo2, dst, at + hi1 - lo1, hi2 - lo2);
+        }
+
+        @Override
+        public T[] gather(T[] src, int[] index) {
+            T[] out = Arrays.copyOf(src, index.length);
+            for (int i = 0; i < index.length; i++) out[i] = src[index[i]];
+            return out;
+        }
+
+        @Override
+        public void scatter(T[] src, int from, int to, byte[] bucketOf, int[] offsets, T[] dst) {
+            for (int i = from; i < to; i++) dst[offsets[bucketOf[i] & 0xFF]++] = src[i];
+        }
+    }
+
+    private interface Sorter<A> {
+        void sort(A array);
+    }
+
+    /** Best of {@code runs} on fresh copies of {@code input}, in ms. */
+    private static <A> double time(A input, UnaryOperator<A> copy, Sorter<A> sorter,
+                                   Predicate<A> check, int runs) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < runs; r++) {
+            A a = copy.apply(input);
+            long t0 = System.nanoTime();
+            sorter.sort(a);
+            best = Math.min(best, System.nanoTime() - t0);
+            if (!check.test(a)) throw new IllegalStateException("Not sorted");
+        }
+        return best / 1e6;
+    }
+
+    public static void main(String[] args) {
+        // 10^8 ints needs ~1.2 GB with the scratch array; pass the largest exponent to try (default 10^7)
+        int maxExp = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        System.out.printf("parallelism=%d%n", ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("%-10s %12s %12s %12s %12s%n", "int[] n", "Arrays.sort", "parallelSort", "mergeSort",
+                "sampleSort");
+        for (int exp = 3; exp <= maxExp; exp++) {
+            int n = (int) Math.pow(10, exp);
+            int runs = exp <= 5 ? 20 : exp <= 7 ? 5 : 2;
+            int[] input = ThreadLocalRandom.current().ints(n).toArray();
+            System.out.printf("%-10s %9.2f ms %9.2f ms %9.2f ms %9.2f ms%n", "10^" + exp,
+                    time(input, int[]::clone, Arrays::sort, Ints::isSorted, runs),
+                    time(input, int[]::clone, Arrays::parallelSort, Ints::isSorted, runs),
+                    time(input, int[]::clone, ParallelSort::mergeSort, Ints::isSorted, runs),
+                    time(input, int[]::clone, ParallelSort::sampleSort, Ints::isSorted, runs));
+        }
+
+        int n = 1_000_000;
+        long[] longs = ThreadLocalRandom.current().longs(n).toArray();
+        double[] doubles = ThreadLocalRandom.current().doubles(n).toArray();
+        doubles[0] = Double.NaN;
+        doubles[1] = -0.0;
+        doubles[2] = 0.0;
+        System.out.printf("long[] 10^6:   parallelSort %.2f ms, mergeSort %.2f ms, sampleSort %.2f ms%n",
+                time(longs, long[]::clone, Arrays::parallelSort, Longs::isSorted, 5),
+                time(longs, long[]::clone, ParallelSort::mergeSort, Longs::isSorted, 5),
+                time(longs, long[]::clone, ParallelSort::sampleSort, Longs::isSorted, 5));
+        System.out.printf("double[] 10^6: parallelSort %.2f ms, mergeSort %.2f ms, sampleSort %.2f ms%n",
+                time(doubles, double[]::clone, Arrays::parallelSort, Doubles::isSorted, 5),
+                time(doubles, double[]::clone, ParallelSort::mergeSort, Doubles::isSorted, 5),
+                time(doubles, double[]::clone, ParallelSort::sampleSort, Doubles::isSorted, 5));
+
+        // Stability: sort by score only; equal scores must keep their original (id) order
+        Integer[][] rows = new Integer[n][];
+        for (int i = 0; i < n; i++) rows[i] = new Integer[]{i, ThreadLocalRandom.current().nextInt(1000)};
+        Comparator<Integer[]> byScore = Comparator.comparing(r -> r[1]);
+        Predicate<Integer[][]> sorted = a -> {
+            for (int i = 1; i < a.length; i++) {
+                if (byScore.compare(a[i - 1], a[i]) > 0) return false;
+            }
+            return true;
+        };
+        Predicate<Integer[][]> stable = a -> {
+            for (int i = 1; i < a.length; i++) {
+                int c = byScore.compare(a[i - 1], a[i]);
+                if (c > 0 || c == 0 && a[i - 1][0] > a[i][0]) return false;
+            }
+            return true;
+        };
+        System.out.printf("Object[] 10^6: parallelSort %.2f ms, mergeSort %.2f ms, sampleSort %.2f ms (ours checked stable)%n",
+                time(rows, Integer[][]::clone, a -> Arrays.parallelSort(a, byScore), sorted, 3),
+                time(rows, Integer[][]::clone, a -> mergeSort(a, byScore), stable, 3),
+                time(rows, Integer[][]::clone, a -> sampleSort(a, byScore), stable, 3));
+    }
+}
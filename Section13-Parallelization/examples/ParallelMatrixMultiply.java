@@ -0,0 +1,195 @@
+package examples;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Dense matrix product C = A × B for row-major {@code double[]} matrices (A is n×k, B is k×m).
+ * <p>
+ * <ul>
+ *   <li>{@link #naive} — the textbook i-j-p triple loop. The inner loop walks B down a column,
+ *       one cache line per element, which is what makes it slow.</li>
+ *   <li>{@link #blocked} — C is cut into tiles and each tile is a fork-join leaf, so no two tasks
+ *       ever write the same cell. Inside a tile the loops run i-p-j over {@value #TILE}-wide blocks
+ *       of k: the innermost loop streams along a row of B and a row of C, and the block of B being
+ *       reused stays in cache.</li>
+ *   <li>{@link #transposed} — transposes B first (in parallel), after which every cell is a dot
+ *       product of two contiguous rows; same tiling and fork-join split.</li>
+ * </ul>
+ * {@code main} compares them and measures speedup and efficiency on 1, 2, 4, ... cores.
+ */
+public class ParallelMatrixMultiply {
+    static final int TILE = 64;
+
+    private ParallelMatrixMultiply() {
+    }
+
+    public static double[] naive(double[] a, double[] b, int n, int k, int m) {
+        double[] c = new double[n * m];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                double sum = 0;
+                for (int p = 0; p < k; p++) sum += a[i * k + p] * b[p * m + j];
+                c[i * m + j] = sum;
+            }
+        }
+        return c;
+    }
+
+    public static double[] blocked(double[] a, double[] b, int n, int k, int m, ForkJoinPool pool) {
+        double[] c = new double[n * m];
+        pool.invoke(new TileTask(0, n, 0, m, (i0, i1, j0, j1) -> {
+            for (int p0 = 0; p0 < k; p0 += TILE) {
+                int p1 = Math.min(k, p0 + TILE);
+                for (int i = i0; i < i1; i++) {
+                    int ci = i * m;
+                    for (int p = p0; p < p1; p++) {
+                        double aip = a[i * k + p];
+                        int bp = p * m;
+                        for (int j = j0; j < j1; j++) c[ci + j] += aip * b[bp + j];
+                    }
+                }
+            }
+        }));
+        return c;
+    }
+
+    public static double[] transposed(double[] a, double[] b, int n, int k, int m, ForkJoinPool pool) {
+        double[] bt = new double[m * k];
+        pool.invoke(new TileTask(0, k, 0, m, (p0, p1, j0, j1) -> {
+            for (int p = p0; p < p1; p++) {
+                for (int j = j0; j < j1; j++) bt[j * k + p] = b[p * m + j];
+            }
+        }));
+        double[] c = new double[n * m];
+        pool.invoke(new TileTask(0, n, 0, m, (i0, i1, j0, j1) -> {
+            for (int i = i0; i < i1; i++) {
+                int ai = i * k;
+                for (int j = j0; j < j1; j++) {
+                    int bj = j * k;
+                    // Four independent sums so the adds don't all wait on one another
+                    double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                    int p = 0;
+                    for (; p + 3 < k; p += 4) {
+                        s0 += a[ai + p] * bt[bj + p];
+                        s1 += a[ai + p + 1] * bt[bj + p + 1];
+                        s2 += a[ai + p + 2] * bt[bj + p + 2];
+                        s3 += a[ai + p + 3] * bt[bj + p + 3];
+                    }
+                    for (; p < k; p++) s0 += a[ai + p] * bt[bj + p];
+                    c[i * m + j] = (s0 + s1) + (s2 + s3);
+                }
+            }
+        }));
+        return c;
+    }
+
+    /** Work on the tile rows [r0, r1) × columns [c0, c1). */
+    @FunctionalInterface
+    interface Tile {
+        void run(int r0, int r1, int c0, int c1);
+    }
+
+    /** Halves the longer side until the tile is at most TILE × TILE. */
+    @SuppressWarnings("serial")
+    static final class TileTask extends RecursiveAction {
+        final int r0, r1, c0, c1;
+        final Tile tile;
+
+        TileTask(int r0, int r1, int c0, int c1, Tile tile) {
+            this.r0 = r0;
+            this.r1 = r1;
+            this.c0 = c0;
+            this.c1 = c1;
+            this.tile = tile;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = r1 - r0, cols = c1 - c0;
+            if (rows <= TILE && cols <= TILE) {
+                tile.run(r0, r1, c0, c1);
+            } else if (rows >= cols) {
+                int mid = (r0 + r1) >>> 1;
+                invokeAll(new TileTask(r0, mid, c0, c1, tile), new TileTask(mid, r1, c0, c1, tile));
+            } else {
+                int mid = (c0 + c1) >>> 1;
+                invokeAll(new TileTask(r0, r1, c0, mid, tile), new TileTask(r0, r1, mid, c1, tile));
+            }
+        }
+    }
+
+    private static double maxError(double[] x, double[] y) {
+        double err = 0;
+        for (int i = 0; i < x.length; i++) err = Math.max(err, Math.abs(x[i] - y[i]));
+        return err;
+    }
+
+    @FunctionalInterface
+    private interface Multiply {
+        double[] run();
+    }
+
+    /** Best of {@code runs}, in ms, after one warmup run. */
+    private static double time(Multiply multiply, int runs) {
+        multiply.run();
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < runs; r++) {
+            long t0 = System.nanoTime();
+            multiply.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1e6;
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 768;
+        int maxCores = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        double[] a = rnd.doubles((long) n * n).toArray();
+        double[] b = rnd.doubles((long) n * n).toArray();
+
+        double[] reference = naive(a, b, n, n, n);
+        try (AutoCloseablePool one = new AutoCloseablePool(1)) {
+            System.out.printf("n=%d: blocked error %.1e, transposed error %.1e%n", n,
+                    maxError(reference, blocked(a, b, n, n, n, one.pool)),
+                    maxError(reference, transposed(a, b, n, n, n, one.pool)));
+        }
+
+        double gflop = 2.0 * n * n * n / 1e9;
+        double naiveMs = time(() -> naive(a, b, n, n, n), 1);
+        System.out.printf("%-22s %9.1f ms %6.2f GFLOP/s%n", "naive (1 thread)", naiveMs, gflop / naiveMs * 1e3);
+
+        double blockedBase = 0, transposedBase = 0;
+        System.out.printf("%5s | %-28s | %-28s%n", "cores", "blocked: ms  speedup eff", "transposed: ms  speedup eff");
+        // 1, 2, 4, ... and finally maxCores itself when it isn't a power of two
+        for (int cores = 1; cores <= maxCores; cores = cores < maxCores ? Math.min(cores * 2, maxCores) : cores + 1) {
+            try (AutoCloseablePool p = new AutoCloseablePool(cores)) {
+                double bl = time(() -> blocked(a, b, n, n, n, p.pool), 3);
+                double tr = time(() -> transposed(a, b, n, n, n, p.pool), 3);
+                if (cores == 1) {
+                    blockedBase = bl;
+                    transposedBase = tr;
+                }
+                System.out.printf("%5d | %8.1f %6.2fx %5.0f%% %5.1fx naive | %8.1f %6.2fx %5.0f%%%n", cores,
+                        bl, blockedBase / bl, 100 * blockedBase / bl / cores, naiveMs / bl,
+                        tr, transposedBase / tr, 100 * transposedBase / tr / cores);
+            }
+        }
+    }
+
+    /** A pool of exactly {@code cores} workers that shuts down with try-with-resources. */
+    private static final class AutoCloseablePool implements AutoCloseable {
+        final ForkJoinPool pool;
+
+        AutoCloseablePool(int cores) {
+            pool = new ForkJoinPool(cores);
+        }
+
+        @Override
+        public void close() {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Measures how a job scales with threads — the question ParallelTaskExecutorTest leaves open by
+ * printing a single elapsed time.
+ * <p>
+ * The workload is run with 1, 2, 4, ... N threads, each after some warmup runs and over several
+ * trials (the median is used, so one GC pause doesn't skew a point). From the times it reports:
+ * <ul>
+ *   <li>speedup S(p) = T(1) / T(p) and efficiency S(p) / p;</li>
+ *   <li>the Karp–Flatt metric per point — the serial fraction that would explain that speedup;</li>
+ *   <li>an Amdahl fit: T(p) = T(1)·(f + (1 − f)/p) is a straight line in 1/p, so least squares on
+ *       (1/p, T(p)) gives the serial fraction f and the ceiling 1/f no number of cores can beat;</li>
+ *   <li>for weak scaling (work grows with p), Gustafson's scaled speedup p·T(1)/T(p) and its
+ *       serial fraction s from S = p − s(p − 1).</li>
+ * </ul>
+ * plus the first thread count where efficiency drops under 50%, i.e. where more cores stop paying.
+ */
+public class SpeedupHarness {
+
+    /** One run of the job on {@code threads} threads; {@code scale} is 1 for strong scaling, p for weak. */
+    @FunctionalInterface
+    public interface Workload {
+        void run(int threads, int scale) throws Exception;
+    }
+
+    public record Point(int threads, double medianMs, double minMs, double maxMs) {
+    }
+
+    private final int warmups;
+    private final int trials;
+
+    public SpeedupHarness(int warmups, int trials) {
+        this.warmups = warmups;
+        this.trials = trials;
+    }
+
+    /** 1, 2, 4, ... up to and including {@code max}. */
+    public static int[] threadCounts(int max) {
+        List<Integer> counts = new ArrayList<>();
+        for (int p = 1; p < max; p *= 2) counts.add(p);
+        counts.add(max);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public List<Point> measure(Workload workload, int[] threadCounts, boolean weak) throws Exception {
+        List<Point> points = new ArrayList<>();
+        for (int p : threadCounts) {
+            int scale = weak ? p : 1;
+            for (int w = 0; w < warmups; w++) workload.run(p, scale);
+            double[] ms = new double[trials];
+            for (int t = 0; t < trials; t++) {
+                long t0 = System.nanoTime();
+                workload.run(p, scale);
+                ms[t] = (System.nanoTime() - t0) / 1e6;
+            }
+            Arrays.sort(ms);
+            points.add(new Point(p, ms[trials / 2], ms[0], ms[trials - 1]));
+        }
+        return points;
+    }
+
+    /** Strong scaling: same work, more threads. */
+    public void amdahl(String name, Workload workload, int maxThreads) throws Exception {
+        List<Point> points = measure(workload, threadCounts(maxThreads), false);
+        double t1 = points.get(0).medianMs();
+        System.out.printf("=== %s — strong scaling (median of %d, %d warmups) ===%n", name, trials, warmups);
+        System.out.printf("%7s %10s %10s %9s %10s %11s%n", "threads", "median ms", "spread ms", "speedup",
+                "efficiency", "Karp-Flatt");
+        int knee = -1;
+        for (Point pt : points) {
+            double s = t1 / pt.medianMs();
+            double eff = s / pt.threads();
+            String kf = pt.threads() == 1 ? "-" : String.format("%.3f", (1 / s - 1.0 / pt.threads())
+                    / (1 - 1.0 / pt.threads()));
+            System.out.printf("%7d %10.1f %10.1f %8.2fx %9.0f%% %11s%n", pt.threads(), pt.medianMs(),
+                    pt.maxMs() - pt.minMs(), s, eff * 100, kf);
+            if (knee < 0 && eff < 0.5) knee = pt.threads();
+        }
+        if (points.size() < 2) {
+            System.out.println("Need at least two thread counts to fit a curve");
+            return;
+        }
+        // Least squares of T(p) = a + b/p; then T(1) = a + b and f = a / (a + b)
+        double[] fit = fitLine(points, pt -> 1.0 / pt.threads(), Point::medianMs);
+        double a = fit[0], b = fit[1];
+        double f = Math.max(0, Math.min(1, a / (a + b)));
+        System.out.printf("Amdahl fit: serial fraction f=%.3f, max speedup 1/f=%s%n", f,
+                f == 0 ? "unbounded" : String.format("%.1fx", 1 / f));
+        System.out.println(knee < 0 ? "Efficiency stays above 50% up to " + maxThreads + " threads"
+                : "Efficiency falls below 50% at " + knee + " threads: adding cores stops paying off there");
+    }
+
+    /** Weak scaling: p threads do p times the work; ideal time stays flat. */
+    public void gustafson(String name, Workload workload, int maxThreads) throws Exception {
+        List<Point> points = measure(workload, threadCounts(maxThreads), true);
+        double t1 = points.get(0).medianMs();
+        System.out.printf("=== %s — weak scaling (work × threads) ===%n", name);
+        System.out.printf("%7s %10s %15s %10s%n", "threads", "median ms", "scaled speedup", "efficiency");
+        for (Point pt : points) {
+            double s = pt.threads() * t1 / pt.medianMs();
+            System.out.printf("%7d %10.1f %14.2fx %9.0f%%%n", pt.threads(), pt.medianMs(), s,
+                    100 * s / pt.threads());
+        }
+        if (points.size() < 2) return;
+        // S = p - s(p - 1): fit s through the origin on (p - 1, p - S)
+        double num = 0, den = 0;
+        for (Point pt : points) {
+            double x = pt.threads() - 1;
+            double y = pt.threads() - pt.threads() * t1 / pt.medianMs();
+            num += x * y;
+            den += x * x;
+        }
+        double s = den == 0 ? 0 : Math.max(0, Math.min(1, num / den));
+        System.out.printf("Gustafson fit: serial fraction s=%.3f (scaled speedup on 64 threads ≈ %.1fx)%n",
+                s, 64 - s * 63);
+    }
+
+    private static double[] fitLine(List<Point> points, ToDoubleFunction<Point> x,
+                                    ToDoubleFunction<Point> y) {
+        double n = points.size(), sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (Point p : points) {
+            double xi = x.applyAsDouble(p), yi = y.applyAsDouble(p);
+            sx += xi;
+            sy += yi;
+            sxx += xi * xi;
+            sxy += xi * yi;
+        }
+        double slope = (n * sxy - sx * sy) / (n * sxx - sx * sx);
+        return new double[]{(sy - slope * sx) / n, slope};
+    }
+
+    /** Busy CPU work that the JIT can't remove. */
+    static double spin(long iterations) {
+        double x = 0;
+        for (long i = 0; i < iterations; i++) x += Math.sqrt(i ^ 0x5DEECE66DL);
+        return x;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        SpeedupHarness harness = new SpeedupHarness(2, 5);
+        System.out.printf("Available processors: %d, measuring up to %d threads%n",
+                Runtime.getRuntime().availableProcessors(), maxThreads);
+
+        // A job that is 10% serial by construction: the fit should land near f=0.1 on a real multi-core box
+        long total = 40_000_000;
+        Workload tenPercentSerial = (threads, scale) -> {
+            // Serial part stays fixed; only the parallel part grows with scale, as Gustafson assumes
+            long work = total * 9 / 10 * scale;
+            double sink = spin(total / 10);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<Double>> parts = new ArrayList<>();
+                for (int t = 0; t < threads; t++) parts.add(pool.submit(() -> spin(work / threads)));
+                for (Future<Double> f : parts) sink += f.get();
+            } finally {
+                pool.shutdown();
+            }
+            if (sink == 42) System.out.print("");
+        };
+        harness.amdahl("10% serial synthetic job", tenPercentSerial, maxThreads);
+        harness.gustafson("10% serial synthetic job", tenPercentSerial, maxThreads);
+
+        // A real kernel from this section: the cache-blocked matrix product
+        int n = 384;
+        double[] a = ThreadLocalRandom.current().doubles(n * n).toArray();
+        double[] b = ThreadLocalRandom.current().doubles(n * n).toArray();
+        harness.amdahl("blocked matrix multiply " + n + "x" + n, (threads, scale) -> {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                ParallelMatrixMultiply.blocked(a, b, n, n, n, pool);
+            } finally {
+                pool.shutdown();
+            }
+        }, maxThreads);
+    }
+}
@@ -0,0 +1,261 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Divide-and-conquer over index ranges without a hard-coded {@code THRESHOLD}.
+ * <p>
+ * The usual RecursiveTask compares the range size against a constant that is right for one input
+ * and wrong for the next: too small and fork/join overhead dominates, too large and cores idle.
+ * Here a task keeps halving its range (forking the right half, keeping the left) only while both
+ * <ul>
+ *   <li>there is demand for work — {@link java.util.concurrent.ForkJoinTask#getSurplusQueuedTaskCount()}
+ *       is at most {@value #MAX_SURPLUS}, so idle workers have little to steal; and</li>
+ *   <li>the piece is still worth a task — its estimated run time, from the nanos-per-element
+ *       measured by earlier leaves, exceeds {@value #TARGET_LEAF_MICROS} µs.</li>
+ * </ul>
+ * Until the first leaf has been timed, ranges are split to a few pieces per core. Every call
+ * measures afresh, so cheap and expensive per-element work each find their own leaf size.
+ * {@link #forEach}, {@link #map} and {@link #reduce} are built on the same task.
+ */
+public class AdaptiveForkJoin {
+    static final int MAX_SURPLUS = 3;
+    static final long TARGET_LEAF_MICROS = 100;
+
+    /** Sequential work on [lo, hi) and how two adjacent results combine (left, right). */
+    public interface Kernel<R> {
+        R leaf(int lo, int hi);
+
+        R combine(R left, R right);
+    }
+
+    /** Split policy and measurements for one top-level call. */
+    static final class Granularity {
+        final int fixedThreshold; // > 0: classic constant cutoff, for comparison
+        final int initialGrain;
+        volatile double nanosPerElement = Double.NaN;
+        final LongAdder leaves = new LongAdder();
+        final LongAdder leafNanos = new LongAdder();
+
+        Granularity(int n, int fixedThreshold, int parallelism) {
+            this.fixedThreshold = fixedThreshold;
+            this.initialGrain = Math.max(1, n / (parallelism * 8));
+        }
+
+        boolean shouldSplit(int size, int surplus) {
+            if (size < 2) return false;
+            if (fixedThreshold > 0) return size > fixedThreshold;
+            if (surplus > MAX_SURPLUS) return false;
+            double perElement = nanosPerElement;
+            if (Double.isNaN(perElement)) return size > initialGrain;
+            return size * perElement > TARGET_LEAF_MICROS * 1_000;
+        }
+
+        void record(int size, long nanos) {
+            leaves.increment();
+            leafNanos.add(nanos);
+            double sample = (double) nanos / size;
+            double old = nanosPerElement;
+            // Racy moving average: a lost update only costs one sample
+            nanosPerElement = Double.isNaN(old) ? sample : old * 0.75 + sample * 0.25;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class Task<R> extends RecursiveTask<R> {
+        final Kernel<R> kernel;
+        final Granularity g;
+        final int lo, hi;
+        Task<R> next; // forked siblings, nearest first
+
+        Task(Kernel<R> kernel, Granularity g, int lo, int hi) {
+            this.kernel = kernel;
+            this.g = g;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected R compute() {
+            int l = lo, h = hi;
+            Task<R> forked = null;
+            while (g.shouldSplit(h - l, getSurplusQueuedTaskCount())) {
+                int mid = (l + h) >>> 1;
+                Task<R> right = new Task<>(kernel, g, mid, h);
+                right.next = forked;
+                forked = right;
+                right.fork();
+                h = mid;
+            }
+            long t0 = System.nanoTime();
+            R result = kernel.leaf(l, h);
+            if (h > l) g.record(h - l, System.nanoTime() - t0);
+            // Combine left to right: our piece, then each forked half from nearest to farthest
+            for (Task<R> t = forked; t != null; t = t.next) result = kernel.combine(result, t.join());
+            return result;
+        }
+    }
+
+    public static <R> R invoke(int n, Kernel<R> kernel) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        return invoke(n, kernel, new Granularity(n, 0, pool.getParallelism()), pool);
+    }
+
+    /** Runs with a caller-supplied policy, whose counters can be read afterwards. */
+    static <R> R invoke(int n, Kernel<R> kernel, Granularity g, ForkJoinPool pool) {
+        return pool.invoke(new Task<>(kernel, g, 0, n));
+    }
+
+    public static void forEach(int lo, int hi, IntConsumer action) {
+        invoke(hi - lo, new Kernel<Void>() {
+            @Override
+            public Void leaf(int from, int to) {
+                for (int i = from; i < to; i++) action.accept(lo + i);
+                return null;
+            }
+
+            @Override
+            public Void combine(Void left, Void right) {
+                return null;
+            }
+        });
+    }
+
+    public static <T> void forEach(List<T> list, Consumer<? super T> action) {
+        forEach(0, list.size(), i -> action.accept(list.get(i)));
+    }
+
+    /** Element-wise {@code f} into a new list, in order; the input should support fast random access. */
+    public static <T, R> List<R> map(List<T> list, Function<? super T, ? extends R> f) {
+        Object[] out = new Object[list.size()];
+        forEach(0, out.length, i -> out[i] = f.apply(list.get(i)));
+        @SuppressWarnings("unchecked")
+        List<R> result = (List<R>) Arrays.asList(out);
+        return result;
+    }
+
+    public static <T, R> R[] map(T[] in, Function<? super T, ? extends R> f, R[] out) {
+        forEach(0, in.length, i -> out[i] = f.apply(in[i]));
+        return out;
+    }
+
+    /** Folds with an associative {@code op}; {@code identity} must be a true identity for it. */
+    public static <T> T reduce(T[] in, T identity, BinaryOperator<T> op) {
+        return invoke(in.length, new Kernel<T>() {
+            @Override
+            public T leaf(int lo, int hi) {
+                T acc = identity;
+                for (int i = lo; i < hi; i++) acc = op.apply(acc, in[i]);
+                return acc;
+            }
+
+            @Override
+            public T combine(T left, T right) {
+                return op.apply(left, right);
+            }
+        });
+    }
+
+    public static <T> T reduce(List<T> list, T identity, BinaryOperator<T> op) {
+        return invoke(list.size(), new Kernel<T>() {
+            @Override
+            public T leaf(int lo, int hi) {
+                T acc = identity;
+                for (int i = lo; i < hi; i++) acc = op.apply(acc, list.get(i));
+                return acc;
+            }
+
+            @Override
+            public T combine(T left, T right) {
+                return op.apply(left, right);
+            }
+        });
+    }
+
+    /** Cheap, uniform work: a sum of square roots. */
+    private static Kernel<Double> sqrtSum() {
+        return new Kernel<>() {
+            @Override
+            public Double leaf(int lo, int hi) {
+                double s = 0;
+                for (int i = lo; i < hi; i++) s += Math.sqrt(i);
+                return s;
+            }
+
+            @Override
+            public Double combine(Double left, Double right) {
+                return left + right;
+            }
+        };
+    }
+
+    /** Expensive, skewed work: trial-division prime counting, slower the larger i gets. */
+    private static Kernel<Long> primeCount() {
+        return new Kernel<>() {
+            @Override
+            public Long leaf(int lo, int hi) {
+                long c = 0;
+                for (int i = Math.max(2, lo); i < hi; i++) {
+                    boolean prime = true;
+                    for (int d = 2; (long) d * d <= i; d++) {
+                        if (i % d == 0) {
+                            prime = false;
+                            break;
+                        }
+                    }
+                    if (prime) c++;
+                }
+                return c;
+            }
+
+            @Override
+            public Long combine(Long left, Long right) {
+                return left + right;
+            }
+        };
+    }
+
+    private static <R> void compare(String name, int n, Kernel<R> kernel) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.printf("--- %s, n=%,d ---%n", name, n);
+        for (int threshold : new int[]{16, 100_000, n / 2, 0}) {
+            long best = Long.MAX_VALUE;
+            R result = null;
+            Granularity g = null;
+            for (int run = 0; run < 5; run++) {
+                g = new Granularity(n, threshold, pool.getParallelism());
+                long t0 = System.nanoTime();
+                result = invoke(n, kernel, g, pool);
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            long leaves = g.leaves.sum();
+            System.out.printf("%-22s %8.1f ms, %8d leaves, avg leaf %8.1f us  (result %s)%n",
+                    threshold == 0 ? "adaptive" : "THRESHOLD=" + threshold, best / 1e6, leaves,
+                    g.leafNanos.sum() / 1e3 / Math.max(1, leaves), result);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("parallelism=" + ForkJoinPool.commonPool().getParallelism());
+        compare("sqrt sum (cheap, uniform)", 20_000_000, sqrtSum());
+        compare("prime count (costly, skewed)", 2_000_000, primeCount());
+
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) words.add("word" + i);
+        List<Integer> lengths = map(words, String::length);
+        Integer total = reduce(lengths, 0, Integer::sum);
+        LongAdder visited = new LongAdder();
+        forEach(words, w -> visited.increment());
+        System.out.printf("map/reduce/forEach on %d words: total length %d, visited %d%n",
+                words.size(), total, visited.sum());
+    }
+}
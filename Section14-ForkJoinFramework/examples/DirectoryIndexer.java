@@ -0,0 +1,370 @@
+package examples;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Scans a directory tree in parallel: every directory is a fork-join task that forks one task per
+ * subdirectory and hashes (SHA-256) its own files as a range task split in halves down to a few files,
+ * so a single directory with thousands of files spreads over the pool too. File counts and sizes are
+ * summed on the way back up. An entry that can't be read counts as one error and the scan goes on.
+ * <p>
+ * Listing directories is cheap, reading files is not: a {@link Semaphore} caps how many files are
+ * read at the same time so a spinning disk isn't thrashed by random reads from every core. Waiting
+ * for it goes through {@link ForkJoinPool#managedBlock} so the pool can keep other tasks running.
+ * <p>
+ * In incremental mode the previous run's index (path, size, mtime, hash per line, with tab, newline,
+ * carriage return and backslash in paths escaped as {@code \t \n \r \\}) is loaded first,
+ * and files whose size and mtime are unchanged keep their old hash without being read. The new
+ * index is written to a temp file and moved over the old one, so a crash never leaves half an index.
+ * The index file and its temp file are skipped if they sit inside the scanned tree.
+ * Symbolic links are not followed.
+ */
+public class DirectoryIndexer {
+
+    record Entry(long size, long mtime, String sha256) {
+    }
+
+    record Summary(long files, long dirs, long bytes, long hashedBytes, long reused, long errors) {
+        Summary plus(Summary o) {
+            return new Summary(files + o.files, dirs + o.dirs, bytes + o.bytes, hashedBytes + o.hashedBytes,
+                    reused + o.reused, errors + o.errors);
+        }
+    }
+
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(64 * 1024));
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final int FILES_PER_TASK = 8;
+    private static final Summary ONE_ERROR = new Summary(0, 0, 0, 0, 0, 1);
+
+    private final Path root;
+    private final Semaphore ioPermits;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final Set<Path> excluded;
+
+    public DirectoryIndexer(Path root, int maxConcurrentReads, Map<String, Entry> previous) {
+        this(root, maxConcurrentReads, previous, null);
+    }
+
+    /** {@code indexFile}, if not null, is left out of the scan together with its temp file. */
+    public DirectoryIndexer(Path root, int maxConcurrentReads, Map<String, Entry> previous, Path indexFile) {
+        if (maxConcurrentReads < 1) {
+            throw new IllegalArgumentException("maxConcurrentReads must be at least 1: " + maxConcurrentReads);
+        }
+        this.root = root;
+        this.ioPermits = new Semaphore(maxConcurrentReads);
+        this.previous = previous;
+        this.excluded = indexFile == null ? Set.of()
+                : Set.of(indexFile.toAbsolutePath().normalize(), tempFileFor(indexFile).toAbsolutePath().normalize());
+    }
+
+    public Summary scan(ForkJoinPool pool) {
+        return pool.invoke(new DirTask(root));
+    }
+
+    public Map<String, Entry> index() {
+        return current;
+    }
+
+    @SuppressWarnings("serial")
+    private final class DirTask extends RecursiveTask<Summary> {
+        private final Path dir;
+
+        DirTask(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected Summary compute() {
+            List<DirTask> subdirs = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            Summary local = new Summary(0, 1, 0, 0, 0, 0);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path p : entries) {
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        local = local.plus(ONE_ERROR); // vanished or unreadable: skip just this entry
+                        continue;
+                    }
+                    if (attrs.isDirectory()) {
+                        DirTask t = new DirTask(p);
+                        t.fork(); // subtrees are walked while we hash this directory's files
+                        subdirs.add(t);
+                    } else if (attrs.isRegularFile() && !isExcluded(p)) {
+                        files.add(p);
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                // Can't open or finish listing the directory: keep whatever was found before that
+                local = local.plus(ONE_ERROR);
+            }
+            local = local.plus(new FileRangeTask(files, 0, files.size()).compute());
+            for (DirTask t : subdirs) local = local.plus(t.join());
+            return local;
+        }
+    }
+
+    /** Indexes files [from, to) of one directory, halving the range until it is small. */
+    @SuppressWarnings("serial")
+    private final class FileRangeTask extends RecursiveTask<Summary> {
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+
+        FileRangeTask(List<Path> files, int from, int to) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (to - from <= FILES_PER_TASK) {
+                Summary local = new Summary(0, 0, 0, 0, 0, 0);
+                for (int i = from; i < to; i++) local = local.plus(indexFile(files.get(i)));
+                return local;
+            }
+            int mid = (from + to) >>> 1;
+            FileRangeTask right = new FileRangeTask(files, mid, to);
+            right.fork();
+            Summary left = new FileRangeTask(files, from, mid).compute();
+            return left.plus(right.join());
+        }
+    }
+
+    private boolean isExcluded(Path file) {
+        return !excluded.isEmpty() && excluded.contains(file.toAbsolutePath().normalize());
+    }
+
+    private static Path tempFileFor(Path indexFile) {
+        return indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    }
+
+    private Summary indexFile(Path file) {
+        String key = root.relativize(file).toString();
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            long size = attrs.size();
+            long mtime = attrs.lastModifiedTime().toMillis();
+            Entry old = previous.get(key);
+            if (old != null && old.size() == size && old.mtime() == mtime) {
+                current.put(key, old);
+                return new Summary(1, 0, size, 0, 1, 0);
+            }
+            String hash = hash(file);
+            current.put(key, new Entry(size, mtime, hash));
+            return new Summary(1, 0, size, size, 0, 0);
+        } catch (IOException | UncheckedIOException e) {
+            return ONE_ERROR;
+        }
+    }
+
+    private String hash(Path file) throws IOException {
+        acquireIo();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest md = SHA256.get();
+            ByteBuffer buf = BUFFER.get();
+            buf.clear();
+            while (ch.read(buf) >= 0) {
+                buf.flip();
+                md.update(buf);
+                buf.clear();
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } finally {
+            ioPermits.release();
+        }
+    }
+
+    /** Takes an I/O permit, letting the pool add a spare worker while this one is blocked. */
+    private void acquireIo() {
+        if (ioPermits.tryAcquire()) return;
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                boolean acquired;
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    ioPermits.acquire();
+                    acquired = true;
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return acquired || (acquired = ioPermits.tryAcquire());
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Interrupted waiting for an I/O slot", e));
+        }
+    }
+
+    public static Map<String, Entry> loadIndex(Path indexFile) throws IOException {
+        Map<String, Entry> index = new ConcurrentHashMap<>();
+        if (!Files.exists(indexFile)) return index;
+        for (String line : Files.readAllLines(indexFile, StandardCharsets.UTF_8)) {
+            String[] f = line.split("\t");
+            if (f.length == 4) index.put(unescape(f[0]), new Entry(Long.parseLong(f[1]), Long.parseLong(f[2]), f[3]));
+        }
+        return index;
+    }
+
+    public static void saveIndex(Map<String, Entry> index, Path indexFile) throws IOException {
+        Path tmp = tempFileFor(indexFile);
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> e : index.entrySet()) {
+                Entry v = e.getValue();
+                w.write(escape(e.getKey()) + "\t" + v.size() + "\t" + v.mtime() + "\t" + v.sha256());
+                w.newLine();
+            }
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** File names may contain tabs and line breaks; escape them so one path stays one field. */
+    static String escape(String path) {
+        StringBuilder sb = new StringBuilder(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String unescape(String field) {
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\' || i + 1 == field.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = field.charAt(++i);
+            sb.append(switch (next) {
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                default -> next;
+            });
+        }
+        return sb.toString();
+    }
+
+    /** Scans {@code root}, reusing and then replacing {@code indexFile}; prints what happened. */
+    public static Summary run(Path root, Path indexFile, int maxConcurrentReads, ForkJoinPool pool) throws IOException {
+        Map<String, Entry> previous = loadIndex(indexFile);
+        DirectoryIndexer indexer = new DirectoryIndexer(root, maxConcurrentReads, previous, indexFile);
+        long t0 = System.nanoTime();
+        Summary s = indexer.scan(pool);
+        double ms = (System.nanoTime() - t0) / 1e6;
+        long removed = previous.keySet().stream().filter(k -> !indexer.index().containsKey(k)).count();
+        saveIndex(indexer.index(), indexFile);
+        System.out.printf("%,d files in %,d dirs, %.1f MB: hashed %,d (%.1f MB), reused %,d unchanged, %d removed, "
+                        + "%d errors in %.0f ms (%.0f MB/s hashed)%n",
+                s.files(), s.dirs(), s.bytes() / 1e6, s.files() - s.reused(), s.hashedBytes() / 1e6, s.reused(), removed, s.errors(), ms,
+                s.hashedBytes() / 1e3 / Math.max(1, ms));
+        return s;
+    }
+
+    /** Builds a throwaway tree: {@code dirs} directories, {@code filesPerDir} files of up to {@code maxKb} KB. */
+    private static void createTree(Path root, int dirs, int filesPerDir, int maxKb) throws IOException {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int d = 0; d < dirs; d++) {
+            Path dir = root.resolve("a" + d % 8).resolve("b" + d);
+            Files.createDirectories(dir);
+            for (int f = 0; f < filesPerDir; f++) {
+                byte[] data = new byte[rnd.nextInt(maxKb * 1024 + 1)];
+                rnd.nextBytes(data);
+                Files.write(dir.resolve("file" + f + ".bin"), data);
+            }
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (var paths = Files.walk(root)) {
+            for (Path p : paths.sorted((x, y) -> y.getNameCount() - x.getNameCount()).toList()) Files.delete(p);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int io = 4;
+        Path root = null, indexFile = null;
+        for (String a : args) {
+            if (a.startsWith("--io=")) io = Integer.parseInt(a.substring(5));
+            else if (a.startsWith("--index=")) indexFile = Paths.get(a.substring(8));
+            else root = Paths.get(a);
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (root != null) {
+            run(root, indexFile != null ? indexFile : Paths.get(".dirindex.tsv"), io, pool);
+            return;
+        }
+
+        // Demo: full scan, unchanged rescan, then a rescan after touching a few files
+        Path tree = Files.createTempDirectory("indexer-demo");
+        Path index = Files.createTempFile("indexer-demo", ".tsv");
+        Files.delete(index);
+        try {
+            createTree(tree, 200, 25, 64);
+            System.out.print("Full scan:         ");
+            run(tree, index, io, pool);
+            System.out.print("Rescan, unchanged: ");
+            run(tree, index, io, pool);
+
+            Path changed = tree.resolve("a1").resolve("b1").resolve("file0.bin");
+            Files.write(changed, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+            Files.setLastModifiedTime(changed, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+            Files.delete(tree.resolve("a2").resolve("b2").resolve("file1.bin"));
+            Files.write(tree.resolve("a3").resolve("b3").resolve("new.bin"), new byte[4096]);
+            System.out.print("After 3 changes:   ");
+            run(tree, index, io, pool);
+        } finally {
+            deleteTree(tree);
+            Files.deleteIfExists(index);
+        }
+    }
+}
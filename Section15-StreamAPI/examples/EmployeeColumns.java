@@ -0,0 +1,279 @@
+package examples;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * StreamArrayExample's {@code Employee[]}, stored by column instead of by row.
+ * <p>
+ * One object per employee costs a header and a pointer chase per field access, and every
+ * {@code map(Employee::getAge)} in a stream goes through that object. Here each field is one
+ * array — names in a {@code String[]}, ages and salaries in {@code int[]}, departments
+ * dictionary-encoded as small ints into a shared list of names — so an aggregation over ages reads
+ * one dense {@code int[]} and never boxes.
+ * <p>
+ * Streams are built on two spliterators that know their exact size and split a range exactly in
+ * half (SIZED | SUBSIZED), so parallel streams get balanced pieces and {@code toArray()} or
+ * {@code count()} need no buffering:
+ * <ul>
+ *   <li>{@link IntColumnSpliterator} — primitive values of one column, or row indices;</li>
+ *   <li>{@link RowSpliterator} — materialises an {@link Employee} view only for rows that are
+ *       actually consumed.</li>
+ * </ul>
+ */
+public class EmployeeColumns {
+
+    /** A row view, created on demand. */
+    public record Employee(String name, int age, String department, int salary) {
+    }
+
+    private String[] names = new String[16];
+    private int[] ages = new int[16];
+    private int[] salaries = new int[16];
+    private int[] departmentCodes = new int[16];
+    private String[] departments = new String[8];
+    private final Map<String, Integer> departmentIndex = new HashMap<>();
+    private int size;
+
+    public void add(String name, int age, String department, int salary) {
+        if (size == names.length) {
+            int cap = size * 2;
+            names = Arrays.copyOf(names, cap);
+            ages = Arrays.copyOf(ages, cap);
+            salaries = Arrays.copyOf(salaries, cap);
+            departmentCodes = Arrays.copyOf(departmentCodes, cap);
+        }
+        names[size] = name;
+        ages[size] = age;
+        salaries[size] = salary;
+        departmentCodes[size] = departmentIndex.computeIfAbsent(department, d -> {
+            int code = departmentIndex.size();
+            if (code == departments.length) departments = Arrays.copyOf(departments, code * 2);
+            departments[code] = d;
+            return code;
+        });
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int row) {
+        return names[row];
+    }
+
+    public int age(int row) {
+        return ages[row];
+    }
+
+    public int salary(int row) {
+        return salaries[row];
+    }
+
+    public String department(int row) {
+        return departments[departmentCodes[row]];
+    }
+
+    public Employee row(int i) {
+        return new Employee(names[i], ages[i], departments[departmentCodes[i]], salaries[i]);
+    }
+
+    public IntStream ages(boolean parallel) {
+        return StreamSupport.intStream(new IntColumnSpliterator(ages, 0, size), parallel);
+    }
+
+    public IntStream salaries(boolean parallel) {
+        return StreamSupport.intStream(new IntColumnSpliterator(salaries, 0, size), parallel);
+    }
+
+    /** Row numbers 0..size-1; combine with the accessors to filter on one column and read another. */
+    public IntStream rows(boolean parallel) {
+        return StreamSupport.intStream(new IntColumnSpliterator(null, 0, size), parallel);
+    }
+
+    public Stream<Employee> employees(boolean parallel) {
+        return StreamSupport.stream(new RowSpliterator<>(this::row, 0, size), parallel);
+    }
+
+    public Stream<String> names(boolean parallel) {
+        return StreamSupport.stream(new RowSpliterator<>(i -> names[i], 0, size), parallel);
+    }
+
+    /** Sum of salaries per department, accumulated into one long[] per thread indexed by department code. */
+    public Map<String, Long> salaryByDepartment(boolean parallel) {
+        int d = departmentIndex.size();
+        long[] sums = rows(parallel).collect(() -> new long[d],
+                (acc, i) -> acc[departmentCodes[i]] += salaries[i],
+                (x, y) -> {
+                    for (int k = 0; k < d; k++) x[k] += y[k];
+                });
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int k = 0; k < d; k++) result.put(departments[k], sums[k]);
+        return result;
+    }
+
+    /**
+     * Values of {@code column} in [index, fence), or the row numbers themselves when {@code column}
+     * is null. Splitting hands the lower half to the new spliterator, so sizes stay exact.
+     */
+    static final class IntColumnSpliterator implements Spliterator.OfInt {
+        private final int[] column;
+        private int index;
+        private final int fence;
+
+        IntColumnSpliterator(int[] column, int index, int fence) {
+            this.column = column;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            if (mid - lo < 1024) return null; // not worth a task
+            index = mid;
+            return new IntColumnSpliterator(column, lo, mid);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) return false;
+            int i = index++;
+            action.accept(column == null ? i : column[i]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            int i = index, hi = fence;
+            index = hi;
+            if (column == null) {
+                for (; i < hi; i++) action.accept(i);
+            } else {
+                int[] c = column;
+                for (; i < hi; i++) action.accept(c[i]);
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | ORDERED | IMMUTABLE | NONNULL;
+        }
+    }
+
+    /** Rows [index, fence) mapped through {@code view}, one object per row actually consumed. */
+    static final class RowSpliterator<T> implements Spliterator<T> {
+        private final IntFunction<T> view;
+        private int index;
+        private final int fence;
+
+        RowSpliterator(IntFunction<T> view, int index, int fence) {
+            this.view = view;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            if (mid - lo < 1024) return null;
+            index = mid;
+            return new RowSpliterator<>(view, lo, mid);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= fence) return false;
+            action.accept(view.apply(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            int i = index, hi = fence;
+            index = hi;
+            for (; i < hi; i++) action.accept(view.apply(i));
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | ORDERED | IMMUTABLE;
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static double millis(Runnable r) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long t0 = System.nanoTime();
+            r.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1e6;
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 3_000_000;
+        String[] depts = {"Engineering", "Sales", "Support", "Finance", "HR", "Legal", "Marketing", "Ops"};
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) names[i] = "Emp" + i; // shared by both layouts, so only the layout is measured
+
+        long before = usedMemory();
+        EmployeeColumns columns = new EmployeeColumns();
+        for (int i = 0; i < n; i++) columns.add(names[i], 20 + rnd.nextInt(45), depts[rnd.nextInt(8)], 30_000 + rnd.nextInt(120_000));
+        long columnarBytes = usedMemory() - before;
+
+        before = usedMemory();
+        Employee[] rows = new Employee[n];
+        for (int i = 0; i < n; i++) rows[i] = columns.row(i);
+        long rowBytes = usedMemory() - before;
+        System.out.printf("%,d employees: object-per-row %.1f MB, columnar %.1f MB (names excluded)%n",
+                n, rowBytes / 1e6, columnarBytes / 1e6);
+
+        System.out.printf("average age:      Employee[] parallel %6.1f ms, int column parallel %6.1f ms%n",
+                millis(() -> Arrays.stream(rows).parallel().mapToInt(Employee::age).average()),
+                millis(() -> columns.ages(true).average()));
+        System.out.printf("salary by dept:   groupingBy parallel %6.1f ms, long[] per dept     %6.1f ms%n",
+                millis(() -> Arrays.stream(rows).parallel()
+                        .collect(Collectors.groupingBy(Employee::department, Collectors.summingLong(Employee::salary)))),
+                millis(() -> columns.salaryByDepartment(true)));
+        System.out.printf("names of age 30+: Employee[] parallel %6.1f ms, rows() + columns  %6.1f ms%n",
+                millis(() -> Arrays.stream(rows).parallel().filter(e -> e.age() >= 30).map(Employee::name).toArray()),
+                millis(() -> columns.rows(true).filter(i -> columns.age(i) >= 30).mapToObj(columns::name).toArray()));
+
+        Map<String, Long> expected = Arrays.stream(rows)
+                .collect(Collectors.groupingBy(Employee::department, Collectors.summingLong(Employee::salary)));
+        if (!expected.equals(new HashMap<>(columns.salaryByDepartment(true)))) throw new IllegalStateException();
+        System.out.println("Salary by department: " + columns.salaryByDepartment(true));
+        System.out.println("First three as rows:  " + Arrays.toString(columns.employees(false).limit(3).toArray()));
+        System.out.println("Exact size without traversal: " + columns.employees(true).count());
+    }
+}
@@ -0,0 +1,412 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Collectors that stay cheap on parallel streams.
+ * <p>
+ * {@code groupingBy(key, counting())} — what CustomTest501 uses for thread states — gives every
+ * stream piece its own HashMap of boxed {@code Long}s and then merges the maps pairwise, so a
+ * parallel run does the counting once and the merging again. The collectors here either share one
+ * structure across threads or keep per-thread state that is small and cheap to merge:
+ * <ul>
+ *   <li>{@link #countingByConcurrent} / {@link #summingByConcurrent} — one ConcurrentHashMap of
+ *       {@link LongAdder}s for the whole stream (CONCURRENT, so there is nothing to merge), and a
+ *       LongAdder is a striped primitive counter that hot keys don't serialise on;</li>
+ *   <li>{@link #topK} — a min-heap of at most k elements per piece; merging keeps the best k of
+ *       two heaps, so the work is O(n log k) instead of sorting everything;</li>
+ *   <li>{@link #approxDistinct} — HyperLogLog: 2^p one-byte registers, merged by taking the
+ *       maximum, about 1.04/√(2^p) relative error (0.8% at the default p=14, 16 KB);</li>
+ *   <li>{@link #digest} — a merging t-digest: values are buffered and folded into at most a few
+ *       hundred weighted centroids, kept small near the tails, so p99 and p99.9 stay accurate
+ *       while memory stays fixed.</li>
+ * </ul>
+ * All of them are UNORDERED; none of the results depend on encounter order.
+ */
+public final class ParallelCollectors {
+
+    private ParallelCollectors() {
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, Long>> countingByConcurrent(Function<? super T, ? extends K> key) {
+        return summingByConcurrent(key, t -> 1);
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, Long>> summingByConcurrent(Function<? super T, ? extends K> key,
+                                                                          ToIntFunction<? super T> value) {
+        return Collector.<T, ConcurrentHashMap<K, LongAdder>, Map<K, Long>>of(
+                ConcurrentHashMap::new,
+                (map, t) -> {
+                    K k = key.apply(t);
+                    LongAdder adder = map.get(k); // plain read first: computeIfAbsent may lock the bin
+                    if (adder == null) adder = map.computeIfAbsent(k, x -> new LongAdder());
+                    adder.add(value.applyAsInt(t));
+                },
+                (a, b) -> {
+                    b.forEach((k, v) -> a.computeIfAbsent(k, x -> new LongAdder()).add(v.sum()));
+                    return a;
+                },
+                map -> {
+                    Map<K, Long> result = new HashMap<>(map.size() * 2);
+                    map.forEach((k, v) -> result.put(k, v.sum()));
+                    return result;
+                },
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    /** The k greatest elements by {@code order}, greatest first. */
+    public static <T> Collector<T, ?, List<T>> topK(int k, Comparator<? super T> order) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive: " + k);
+        return Collector.<T, PriorityQueue<T>, List<T>>of(
+                () -> new PriorityQueue<>(k + 1, order), // head is the weakest of the current top k
+                (heap, t) -> offer(heap, t, k, order),
+                (a, b) -> {
+                    PriorityQueue<T> big = a.size() >= b.size() ? a : b, small = big == a ? b : a;
+                    for (T t : small) offer(big, t, k, order);
+                    return big;
+                },
+                heap -> {
+                    List<T> result = new ArrayList<>(heap);
+                    result.sort(Collections.reverseOrder(order));
+                    return result;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    private static <T> void offer(PriorityQueue<T> heap, T t, int k, Comparator<? super T> order) {
+        if (heap.size() < k) {
+            heap.add(t);
+        } else if (order.compare(t, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(t);
+        }
+    }
+
+    /** Approximate number of distinct elements, using their {@code hashCode()}. */
+    public static <T> Collector<T, ?, Long> approxDistinct() {
+        return approxDistinct(Object::hashCode, 14);
+    }
+
+    /**
+     * Approximate number of distinct values of {@code key}; distinct elements must give distinct keys
+     * (a 64-bit id, or a hash of one). Uses 2^{@code precision} registers, 4 to 18.
+     */
+    public static <T> Collector<T, ?, Long> approxDistinct(ToLongFunction<? super T> key, int precision) {
+        if (precision < 4 || precision > 18) throw new IllegalArgumentException("precision must be 4..18: " + precision);
+        return Collector.<T, HyperLogLog, Long>of(
+                () -> new HyperLogLog(precision),
+                (hll, t) -> hll.add(key.applyAsLong(t)),
+                HyperLogLog::merge,
+                HyperLogLog::estimate,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /** A t-digest of {@code value}, to ask for any number of quantiles afterwards. */
+    public static <T> Collector<T, ?, Digest> digest(ToDoubleFunction<? super T> value) {
+        return digest(value, 500);
+    }
+
+    /**
+     * A t-digest of {@code value} with the given compression, at least 20: below that the scale
+     * function leaves too few centroids for the tails to mean anything.
+     */
+    public static <T> Collector<T, ?, Digest> digest(ToDoubleFunction<? super T> value, int compression) {
+        if (compression < 20) throw new IllegalArgumentException("compression must be at least 20: " + compression);
+        return Collector.<T, Digest>of(
+                () -> new Digest(compression),
+                (d, t) -> d.add(value.applyAsDouble(t)),
+                Digest::merge,
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /** Finalisation step of MurmurHash3: spreads every input bit over the whole word. */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    static final class HyperLogLog {
+        private final int p;
+        private final byte[] registers;
+
+        HyperLogLog(int p) {
+            this.p = p;
+            this.registers = new byte[1 << p];
+        }
+
+        void add(long key) {
+            long h = mix(key);
+            int index = (int) (h >>> (64 - p));
+            // Rank of the first 1-bit in the remaining 64 - p bits; the guard bit caps it
+            int rank = Long.numberOfLeadingZeros((h << p) | (1L << (p - 1))) + 1;
+            if (rank > registers[index]) registers[index] = (byte) rank;
+        }
+
+        HyperLogLog merge(HyperLogLog o) {
+            for (int i = 0; i < registers.length; i++) {
+                if (o.registers[i] > registers[i]) registers[i] = o.registers[i];
+            }
+            return this;
+        }
+
+        long estimate() {
+            int m = registers.length, zeros = 0;
+            double sum = 0;
+            for (byte r : registers) {
+                sum += Math.scalb(1.0, -r);
+                if (r == 0) zeros++;
+            }
+            // Bias correction from the HyperLogLog paper; the closed form only holds from m = 128
+            double alpha = switch (m) {
+                case 16 -> 0.673;
+                case 32 -> 0.697;
+                case 64 -> 0.709;
+                default -> 0.7213 / (1 + 1.079 / m);
+            };
+            double e = alpha * m * m / sum;
+            // Small cardinalities: count empty registers instead (linear counting)
+            if (e <= 2.5 * m && zeros > 0) e = m * Math.log((double) m / zeros);
+            return Math.round(e);
+        }
+    }
+
+    /**
+     * Merging t-digest with compression δ. Centroids are sized by the arcsine scale function, which
+     * allows about δ/2 of them: near the median they hold many values, near either tail only a
+     * handful, which is where the accuracy is needed.
+     */
+    public static final class Digest {
+        private final double compression;
+        private double[] means = new double[0];
+        private double[] weights = new double[0];
+        private long count;
+        private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        private final double[] buffer;
+        private int buffered;
+
+        Digest(int compression) {
+            this.compression = compression;
+            this.buffer = new double[compression * 5];
+        }
+
+        void add(double x) {
+            if (Double.isNaN(x)) return;
+            if (buffered == buffer.length) compress(null);
+            buffer[buffered++] = x;
+            count++;
+            if (x < min) min = x;
+            if (x > max) max = x;
+        }
+
+        Digest merge(Digest o) {
+            compress(o);
+            count += o.count;
+            min = Math.min(min, o.min);
+            max = Math.max(max, o.max);
+            return this;
+        }
+
+        /** Folds the buffer, and {@code other}'s centroids and buffer if given, into the centroids. */
+        private void compress(Digest other) {
+            Arrays.sort(buffer, 0, buffered);
+            double[][] merged = mergeSorted(means, weights, means.length, buffer, null, buffered);
+            buffered = 0;
+            if (other != null) {
+                Arrays.sort(other.buffer, 0, other.buffered);
+                double[][] theirs = mergeSorted(other.means, other.weights, other.means.length,
+                        other.buffer, null, other.buffered);
+                merged = mergeSorted(merged[0], merged[1], merged[0].length, theirs[0], theirs[1], theirs[0].length);
+            }
+            double[] m = merged[0], w = merged[1];
+            int n = m.length;
+            if (n == 0) return;
+            double total = 0;
+            for (double x : w) total += x;
+
+            // k(q) = δ/2π · asin(2q − 1); a centroid may span at most 1 in k, so the weight it may
+            // reach is worked out once from where it starts rather than per value
+            double kMax = compression / 4;
+            int out = 0;
+            double cumulative = 0;
+            double limit = weightLimit(0, total, kMax);
+            for (int j = 1; j < n; j++) {
+                double proposed = w[out] + w[j];
+                if (proposed <= limit) {
+                    m[out] += (m[j] - m[out]) * w[j] / proposed;
+                    w[out] = proposed;
+                } else {
+                    cumulative += w[out];
+                    out++;
+                    m[out] = m[j];
+                    w[out] = w[j];
+                    limit = weightLimit(cumulative, total, kMax);
+                }
+            }
+            means = Arrays.copyOf(m, out + 1);
+            weights = Arrays.copyOf(w, out + 1);
+        }
+
+        /** Largest weight a centroid starting at {@code cumulative} may grow to. */
+        private double weightLimit(double cumulative, double total, double kMax) {
+            double k = compression / (2 * Math.PI) * Math.asin(2 * cumulative / total - 1) + 1;
+            if (k >= kMax) return total;
+            double qEnd = (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+            return qEnd * total - cumulative;
+        }
+
+        /** Two mean-sorted centroid lists merged into one; null weights mean 1 each. */
+        private static double[][] mergeSorted(double[] am, double[] aw, int an, double[] bm, double[] bw, int bn) {
+            double[] m = new double[an + bn], w = new double[an + bn];
+            int i = 0, j = 0, o = 0;
+            while (i < an || j < bn) {
+                if (j >= bn || (i < an && am[i] <= bm[j])) {
+                    m[o] = am[i];
+                    w[o++] = aw == null ? 1 : aw[i];
+                    i++;
+                } else {
+                    m[o] = bm[j];
+                    w[o++] = bw == null ? 1 : bw[j];
+                    j++;
+                }
+            }
+            return new double[][]{m, w};
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public int centroids() {
+            if (buffered > 0) compress(null);
+            return means.length;
+        }
+
+        /** Value at quantile {@code q} (0..1), interpolated between centroid centres. */
+        public double quantile(double q) {
+            if (q < 0 || q > 1) throw new IllegalArgumentException("q must be in [0, 1]: " + q);
+            if (buffered > 0) compress(null);
+            if (count == 0) return Double.NaN;
+            if (means.length == 1) return means[0];
+            double target = q * count;
+            double left = 0; // cumulative weight before centroid i
+            double prevCenter = 0, prevMean = min;
+            for (int i = 0; i < means.length; i++) {
+                double center = left + weights[i] / 2;
+                if (target < center) {
+                    double f = (target - prevCenter) / (center - prevCenter);
+                    return prevMean + f * (means[i] - prevMean);
+                }
+                prevCenter = center;
+                prevMean = means[i];
+                left += weights[i];
+            }
+            double f = (target - prevCenter) / Math.max(1e-9, count - prevCenter);
+            return prevMean + Math.min(1, f) * (max - prevMean);
+        }
+    }
+
+    // ------------------------------------------------------------------ demo
+
+    enum Region {NORTH, SOUTH, EAST, WEST, CENTRAL, ISLANDS, COAST, MOUNTAINS}
+
+    record Event(long userId, Region region, double latencyMs) {
+    }
+
+    private static <R> R timed(String label, Supplier<R> run) {
+        R result = run.get(); // warmup
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long t0 = System.nanoTime();
+            result = run.get();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        System.out.printf("  %-40s %8.1f ms%n", label, best / 1e6);
+        return result;
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 3_000_000;
+        SplittableRandom rnd = new SplittableRandom(42);
+        Region[] regions = Region.values();
+        Event[] events = new Event[n];
+        for (int i = 0; i < n; i++) {
+            long user = rnd.nextLong(n / 3); // about 2/3 of the user ids repeat
+            Region region = regions[Math.min(regions.length - 1, (int) (-Math.log(rnd.nextDouble()) * 2))];
+            double latency = Math.exp(3 + rnd.nextGaussian() * 0.8); // log-normal, median ~20 ms
+            events[i] = new Event(user, region, latency);
+        }
+        List<Event> list = Arrays.asList(events);
+        System.out.printf("%,d events, parallelism %d%n", n, ForkJoinPool.getCommonPoolParallelism());
+
+        System.out.println("Count per region:");
+        Map<Region, Long> exact = timed("groupingBy(counting()) parallel", () ->
+                list.parallelStream().collect(Collectors.groupingBy(Event::region, Collectors.counting())));
+        timed("groupingByConcurrent(counting())", () ->
+                list.parallelStream().collect(Collectors.groupingByConcurrent(Event::region, Collectors.counting())));
+        Map<Region, Long> concurrent = timed("countingByConcurrent (LongAdder)", () ->
+                list.parallelStream().collect(countingByConcurrent(Event::region)));
+        check(exact.equals(concurrent), "counts differ");
+
+        System.out.println("Ten slowest requests:");
+        List<Event> sorted = timed("sorted().limit(10) parallel", () ->
+                list.parallelStream().sorted(Comparator.comparingDouble(Event::latencyMs).reversed()).limit(10).toList());
+        List<Event> top = timed("topK(10)", () ->
+                list.parallelStream().collect(topK(10, Comparator.comparingDouble(Event::latencyMs))));
+        check(sorted.equals(top), "top 10 differ");
+
+        System.out.println("Distinct users:");
+        long distinct = timed("map().distinct().count() parallel", () ->
+                list.parallelStream().map(Event::userId).distinct().count());
+        long approx = timed("approxDistinct (HyperLogLog, 16 KB)", () ->
+                list.parallelStream().collect(approxDistinct(Event::userId, 14)));
+        System.out.printf("  exact %,d, estimate %,d (%+.2f%%)%n", distinct, approx, 100.0 * (approx - distinct) / distinct);
+
+        System.out.println("Latency quantiles:");
+        double[] all = timed("sort all latencies", () -> {
+            double[] v = list.parallelStream().mapToDouble(Event::latencyMs).toArray();
+            Arrays.parallelSort(v);
+            return v;
+        });
+        Digest digest = timed("digest (t-digest, compression 500)", () -> list.parallelStream().collect(digest(Event::latencyMs)));
+        System.out.printf("  %d centroids for %,d values%n", digest.centroids(), digest.count());
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            double want = all[(int) Math.min(all.length - 1, Math.floor(q * all.length))];
+            double got = digest.quantile(q);
+            System.out.printf("  p%-5s exact %8.3f ms, digest %8.3f ms (%+.2f%%)%n",
+                    String.valueOf(q * 100).replaceAll("\\.0$", ""), want, got, 100 * (got - want) / want);
+        }
+
+        // CustomTest501's thread-state histogram, with the concurrent collector
+        Set<Thread> threads = Thread.getAllStackTraces().keySet();
+        Map<Thread.State, Long> states = threads.parallelStream().collect(countingByConcurrent(Thread::getState));
+        System.out.println("Thread states: " + new EnumMap<>(states));
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+}